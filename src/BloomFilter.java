@@ -0,0 +1,113 @@
+/**
+ * .BloomFilter.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A Bloom filter over pseudokeys. Kept alongside a bucket so lookups for values that are not in
+ * the bucket can usually be answered without reading the bucket's contents.
+ */
+public class BloomFilter
+{
+	private long[] bits;
+	private int numBits;
+	private int numHashes;
+	
+	private int count;
+	private int expectedCount;
+	
+	/**
+	 * Constructs an empty BloomFilter.
+	 * 
+	 * @param expectedCount number of pseudokeys the filter is sized for.
+	 * @param bitsPerKey number of bits per expected pseudokey.
+	 * @param numHashes number of bits set per pseudokey.
+	 */
+	public BloomFilter(int expectedCount, double bitsPerKey, int numHashes)
+	{
+		long wanted = (long) Math.ceil(expectedCount * bitsPerKey);
+		this.bits = new long[(int) Math.max(1, (wanted + 63) / 64)];
+		this.numBits = this.bits.length * 64;
+		this.numHashes = numHashes;
+		this.count = 0;
+		this.expectedCount = expectedCount;
+	}
+	
+	/**
+	 * Gets the number of bits per pseudokey needed for a false positive rate.
+	 * 
+	 * @param falsePositiveRate the desired false positive rate, between 0 and 1 exclusive.
+	 * @return the number of bits per pseudokey.
+	 */
+	public static double getBitsPerKey(double falsePositiveRate)
+	{
+		return -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+	}
+	
+	/**
+	 * Gets the number of bits to set per pseudokey that minimizes false positives.
+	 * 
+	 * @param bitsPerKey the number of bits per pseudokey.
+	 * @return the number of bits to set per pseudokey.
+	 */
+	public static int getNumHashes(double bitsPerKey)
+	{
+		return Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+	}
+	
+	/**
+	 * Adds a pseudokey to the filter.
+	 * 
+	 * @param pseudokey the pseudokey to add.
+	 */
+	public void add(int pseudokey)
+	{
+		// Every pseudokey in a bucket shares its left most bits, so they are mixed before use.
+		int h1 = MixHasher.mix32(pseudokey);
+		int h2 = MixHasher.mix32(pseudokey ^ 0x9e3779b9) | 1;
+		for (int i = 0; i < this.numHashes; i++) {
+			int bit = Integer.remainderUnsigned(h1 + i * h2, this.numBits);
+			this.bits[bit >>> 6] |= 1L << bit;
+		}
+		this.count++;
+	}
+	
+	/**
+	 * Checks if a pseudokey may have been added to the filter.
+	 * 
+	 * @param pseudokey the pseudokey to check.
+	 * @return false if the pseudokey was definitely never added, true otherwise.
+	 */
+	public boolean mightContain(int pseudokey)
+	{
+		int h1 = MixHasher.mix32(pseudokey);
+		int h2 = MixHasher.mix32(pseudokey ^ 0x9e3779b9) | 1;
+		for (int i = 0; i < this.numHashes; i++) {
+			int bit = Integer.remainderUnsigned(h1 + i * h2, this.numBits);
+			if ((this.bits[bit >>> 6] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks if more pseudokeys have been added than the filter was sized for.
+	 * 
+	 * @return true if the filter should be rebuilt larger.
+	 */
+	public boolean isFull()
+	{
+		return this.count > this.expectedCount;
+	}
+	
+	/**
+	 * Gets the size of the filter in bytes.
+	 * 
+	 * @return the number of bytes used by the filter's bits.
+	 */
+	public int getSizeInBytes()
+	{
+		return this.bits.length * Long.BYTES;
+	}
+}
@@ -1,498 +1,1155 @@
-/**
- * .Bucket.java
- *
- * @author Chris Nguyen
- */
-
-/**
- * Represents a bucket pointed at by an index in the Directory in Extendible Hashing.
- */
-public class Bucket
-{
-	//          +-------------------------+
-	// bucket = |   HEADER   |   BUFFER   |
-	//          +-------------------------+
-	// 
-	// HEADER contains the length of the words in the BUFFER, and grows left to right.
-	// BUFFER contains the words, and grows right to left, but the words are NOT reversed.
-	// Ex: [ 3,4,4, <empty cells here>, S,u,n,J,a,v,a,U,o,f,C ] 
-	private char[] bucket;
-	
-	private int depth;
-	private int bitPattern;
-	
-	private int remainingSize;
-	private int numWords;	// also known as the header length
-	private int startOfBuffer;
-	
-	private Bucket nextBucket;
-	
-	private StringHasher h;
-	
-	private static int ID;
-	public int id;
-	
-	/**
-	 * Constructs a new bucket.
-	 * 
-	 * @param capacity the maximum size of the bucket.
-	 */
-	public Bucket(int capacity)
-	{
-		this(capacity, 0);
-	}
-	
-	/**
-	 * Constructs a new bucket.
-	 * 
-	 * @param capacity the maximum size of the bucket.
-	 * @param newDepth the initial depth of the bucket.
-	 */
-	public Bucket(int capacity, int newDepth)
-	{
-		this.bucket = new char[capacity];
-		this.depth = newDepth;
-		this.bitPattern = -1;
-		this.remainingSize = capacity;
-		this.numWords = 0;
-		this.startOfBuffer = capacity;
-		this.nextBucket = null;
-		this.h = StringHasher.getInstance();
-		
-		this.id = Bucket.ID++;
-	}
-	
-	/**
-	 * Creates an empty Bucket with the state of the input Bucket.
-	 * 
-	 * @param b bucket to copy state, but not the bucket header/buffer (contents) itself.
-	 */
-	public Bucket(Bucket b)
-	{
-		this.bucket = new char[b.getCapacity()];
-		this.depth = b.getDepth();
-		this.bitPattern = b.getBitPattern();
-		this.remainingSize = this.bucket.length;
-		this.numWords = 0;
-		this.startOfBuffer = this.bucket.length;
-		this.nextBucket = null;
-		this.h = StringHasher.getInstance();
-		
-		this.id = Bucket.ID++;
-	}
-	
-	/**
-	 * Gets the capacity of the bucket.
-	 * 
-	 * @return the capacity of the bucket.
-	 */
-	public int getCapacity()
-	{
-		return this.bucket.length;
-	}
-	
-	/**
-	 * Gets the depth of the bucket.
-	 * 
-	 * @return the local depth of the bucket.
-	 */
-	public int getDepth()
-	{
-		return this.depth;
-	}
-	
-	/**
-	 * Gets the bit pattern of the bucket.
-	 *
-	 * @return the bit pattern of the bucket.
-	 */
-	public int getBitPattern()
-	{
-		return this.bitPattern;
-	}
-	
-	/**
-	 * Increments the depth of the bucket. Appends 0.
-	 */
-	public void incDepth0()
-	{
-		this.depth++;
-		
-		if (this.bitPattern == -1)
-			this.bitPattern = 0;
-		else
-			this.bitPattern = BitUtility.append0(this.bitPattern);
-	}
-	
-	/**
-	 * Increments the depth of the bucket. Appends 1.
-	 */
-	public void incDepth1()
-	{
-		this.depth++;
-		
-		if (this.bitPattern == -1)
-			this.bitPattern = 1;
-		else
-			this.bitPattern = BitUtility.append1(this.bitPattern);
-	}
-	
-	/**
-	 * Gets the remaining size of the bucket.
-	 * 
-	 * @return the remaining size of the bucket.
-	 */
-	public int getRemainingSize()
-	{
-		return this.remainingSize;
-	}
-	
-	/**
-	 * Create a new bucket and link to it.
-	 */
-	public void chainBucket()
-	{
-		Bucket prev = this;
-		Bucket curr = this.nextBucket;	// might have to make a getNextBucket()
-		
-		while (curr != null) {
-			prev = curr;
-			curr = curr.nextBucket;
-		}
-		prev.nextBucket = new Bucket(prev);
-	}
-	
-	/**
-	 * Inserts a value into the bucket.
-	 * 
-	 * @param value The value to insert.
-	 * @return true if insert succeeded, false if there is not enough room to insert.
-	 */
-	public boolean insert(String value)
-	{
-		// Return false if there is not enough room to store every character plus the length
-		if (this.remainingSize < value.length() + 1) {
-			// If the next bucket is not null, the directory must have reached it's max size and 
-			// called chainBucket(). In this case, insert value in the next bucket.
-			if (this.nextBucket != null) {
-				if (as1.DEBUG) 
-					System.out.println("Bucket: " + this.id + " is full! " +
-						"Inserting into chained bucket: " + this.nextBucket.id);
-				return this.nextBucket.insert(value);
-			}
-			else {
-				if (as1.DEBUG)
-					System.out.println("Bucket " + this.id + " is full!");
-				return false;
-			}
-		}
-		
-		// Subtract the number of bytes used to store 'value', and one more to store the length
-		this.remainingSize -= (value.length() + 1);
-		
-		// Find the proper position in header to insert value's length by a sequential search.
-		int offset = 0;
-		int valueLength = value.length();
-		int i = 0;
-		for (; i < this.numWords; i++) {
-			if (this.bucket[i] < valueLength) {
-				offset += this.bucket[i];
-			}
-			else if (this.bucket[i] == valueLength) {
-				int indexOfWord = this.bucket.length - offset - this.bucket[i];
-				String wordInBucket = String.copyValueOf(this.bucket, indexOfWord, valueLength);
-				
-				// if value to insert is less than the current word in the bucket
-				if (value.compareTo(wordInBucket) < 0) {
-					break;
-				}
-				else {
-					offset += this.bucket[i];
-				}
-			}
-			else {
-				break;
-			}
-		}
-		
-		// Make room to insert length in header and word in buffer.
-		if (i != this.numWords) {
-			shiftRight(i, this.numWords-1, 1);
-		}
-		shiftLeft(this.startOfBuffer, this.bucket.length - offset - 1, valueLength);
-		
-		// Since we are inserting from the end of the array, offset must include the length of value
-		offset += valueLength;
-		this.startOfBuffer -= valueLength;
-		
-		// Insert the length into the header
-		this.bucket[i] = (char) valueLength;
-		
-		// Insert the word itself into the buffer.
-		writeStringToBucket(value, this.bucket.length - offset);
-		this.numWords++;
-		
-		return true;
-	}
-	
-	/**
-	 * Searches for the given key in the bucket.
-	 * 
-	 * @param key The key to search for.
-	 * @return Index of key if found. -1 otherwise.
-	 */
-	public int search(String key)
-	{
-		// Find ANY (there may be multiple) index of key.length() in the header.
-		int midIndexOfKeyInHeader = binarySearchHeader(key.length());
-		int curr = midIndexOfKeyInHeader;
-		
-		// If the word length is not found, try searching the next chained bucket.
-		if (curr < 0) {
-			if (this.nextBucket != null)
-				return this.nextBucket.search(key);
-			else
-				return -1;
-		}
-		
-		// Find offset to the word itself in the buffer.
-		int offset = 0;
-		for (int i = 0; i <= midIndexOfKeyInHeader; i++) {
-			offset += this.bucket[i];
-		}
-		
-		// Check if key is found
-		String word = String.copyValueOf(this.bucket, this.bucket.length-offset, this.bucket[curr]);
-		if (key.compareTo(word) == 0)
-			return curr;
-		
-		// Scan left to find key
-		curr = midIndexOfKeyInHeader-1;
-		while (curr >= 0 && this.bucket[curr] == key.length()) {
-			word = String.copyValueOf(this.bucket, this.bucket.length-offset, this.bucket[curr]);
-			if (key.compareTo(word) == 0)
-				return curr;
-			offset -= this.bucket[curr];
-			curr--;
-		}
-		
-		// Scan right to find key
-		curr = midIndexOfKeyInHeader+1;
-		while (curr < this.numWords && this.bucket[curr] == key.length()) {
-			word = String.copyValueOf(this.bucket, this.bucket.length-offset, this.bucket[curr]);
-			if (key.compareTo(word) == 0)
-				return curr;
-			offset += this.bucket[curr];
-			curr++;
-		}
-		
-		// Could not find word
-		if (this.nextBucket != null)
-			return this.nextBucket.search(key);
-		else
-			return -1;
-	}
-	
-	/**
-	 * Searches for the given key in the bucket, and counts the number of probes.
-	 * 
-	 * @param key The key to search for.
-	 * @return The number of probes to find key
-	 */
-	public int countProbes(String key)
-	{
-		int numProbes = 0;
-		
-		// Find ANY (there may be multiple) index of key.length() in the header.
-		int midIndexOfKeyInHeader = binarySearchHeader(key.length());
-		int curr = midIndexOfKeyInHeader;
-		
-		// If the word length is not found, try searching the next chained bucket.
-		if (curr < 0) {
-			if (this.nextBucket != null) {
-				numProbes++;
-				return numProbes + this.nextBucket.countProbes(key);
-			}
-			else {
-				return -1;
-			}
-		}
-		
-		// Find offset to the word itself in the buffer.
-		int offsetToMidIndexOfKey = 0, currOffset = 0;
-		for (int i = 0; i <= midIndexOfKeyInHeader; i++) {
-			offsetToMidIndexOfKey += this.bucket[i];
-		}
-		
-		// Check if key is found
-		String word = String.copyValueOf(this.bucket, this.bucket.length-offsetToMidIndexOfKey, this.bucket[curr]);
-		numProbes++;
-		if (key.compareTo(word) == 0)
-			return numProbes;
-		
-		// Scan left to find key
-		currOffset = offsetToMidIndexOfKey;
-		curr = midIndexOfKeyInHeader-1;
-		while (curr >= 0 && this.bucket[curr] == key.length()) {
-			currOffset -= this.bucket[curr];
-			word = String.copyValueOf(this.bucket, this.bucket.length-currOffset, this.bucket[curr]);
-			numProbes++;
-			if (key.compareTo(word) == 0)
-				return numProbes;
-			
-			curr--;
-		}
-		
-		// Scan right to find key
-		currOffset = offsetToMidIndexOfKey;
-		curr = midIndexOfKeyInHeader+1;
-		while (curr < this.numWords && this.bucket[curr] == key.length()) {
-			currOffset += this.bucket[curr];
-			word = String.copyValueOf(this.bucket, this.bucket.length-currOffset, this.bucket[curr]);
-			numProbes++;
-			if (key.compareTo(word) == 0)
-				return numProbes;
-			
-			curr++;
-		}
-		
-		// Could not find word
-		if (this.nextBucket != null) {
-			numProbes++;
-			return numProbes + this.nextBucket.countProbes(key);
-		}
-		else {
-			return -1;
-		}
-	}
-	
-	
-	private int binarySearchHeader(int length)
-	{
-		int l = 0, r = this.numWords-1, m = mid(l, r);
-		while (l <= r) {
-			if (length < this.bucket[m]) {
-				r = m-1;
-				m = mid(l, r);
-			}
-			else if (length > this.bucket[m]) {
-				l = m+1;
-				m = mid(l, r);
-			}
-			else {
-				return m;
-			}
-		}
-		
-		// At this point, r < l. Did not find length in header.
-		return -1;
-	}
-	
-	private void erase(int start, int end)
-	{
-		for (int i = start; i <= end; i++)
-			this.bucket[i] = ' ';
-		this.remainingSize += end-start+1;
-	}
-	
-	public void shiftRight(int start, int end, int numberOfShifts)
-	{
-		for (int i = end; i >= start; i--) {
-			bucket[i+numberOfShifts] = bucket[i];
-		}
-		for (int i = start; i < start+numberOfShifts; i++) {
-			bucket[i] = ' ';
-		}
-	}
-	
-	public void shiftLeft(int start, int end, int numberOfShifts)
-	{
-		for (int i = start; i <= end; i++) {
-			bucket[i-numberOfShifts] = bucket[i];
-		}
-		for (int i = end; i > end-numberOfShifts; i--) {
-			bucket[i] = ' ';
-		}
-	}
-	
-	public void writeStringToBucket(String value, int start)
-	{
-		for (int i = 0; i < value.length(); i++) {
-			bucket[start+i] = value.charAt(i);
-		}
-	}
-	
-	/**
-	 * Filters all values in the bucket that does not start with bitPattern into b.
-	 * 
-	 * @param b Bucket to move values that do not fit the bitPattern filter
-	 * @param bitPattern Filter
-	 */
-	public void filter(Bucket b, int bitPattern)
-	{
-		int offset = 0;
-		for (int i = 0; i < this.numWords; i++) {
-			offset += this.bucket[i];
-			String word = String.copyValueOf(this.bucket, this.bucket.length-offset, this.bucket[i]); 
-			
-			if (BitUtility.getLeftMostBits(h.hash(word), this.depth) != bitPattern) {
-				b.insert(word);
-				
-				erase(i, i);				
-				shiftLeft(i+1, this.numWords-1, 1);
-				i--;
-				this.numWords--;
-				
-				erase(this.bucket.length-offset, this.bucket.length-offset+word.length()-1);
-				shiftRight(startOfBuffer, this.bucket.length-offset-1, word.length());
-				offset -= word.length();
-				startOfBuffer += word.length();
-			}
-		}
-	}
-	
-	/**
-	 * Calculates the midpoint between two integers.
-	 * 
-	 * @param left One endpoint.
-	 * @param right Another endpoint.
-	 * @return The midpoint between left and right.
-	 */
-	private int mid(int left, int right)
-	{
-		if (left <= right)
-			return (right-left)/2 + left;
-		else
-			return (left-right)/2 + right;
-	}
-	
-	public void printBucket()
-	{
-		// Print bucket id, depth, and bit pattern
-		String bitStr;
-		if (this.bitPattern == -1 || this.depth == 0)
-			bitStr = "_";
-		else
-			bitStr = String.format("%"+this.depth+"s", Integer.toBinaryString(this.bitPattern));
-		bitStr = bitStr.replace(' ', '0');
-		
-		System.out.printf("|B: %d D: %d Bit: %s|", this.id, this.depth, bitStr);
-		
-		// Print bucket contents
-		String header = "", buffer = "";
-		int offset = 0;
-		for (int i = 0; i < this.numWords; i++) {
-			header += (int) this.bucket[i];
-			offset += this.bucket[i];
-			String word = String.copyValueOf(this.bucket, this.bucket.length-offset, this.bucket[i]);
-			buffer = word + buffer;;
-		}
-		System.out.print(header + "..." + this.remainingSize + " free bytes..." + buffer);
-		
-		// Print next bucket (if any)
-		if (this.nextBucket != null) {
-			System.out.print(" -> (next bucket: " + this.nextBucket.id + ")" + "\n                           -> ");
-			this.nextBucket.printBucket();
-		}
-	}
-}
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * .Bucket.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Represents a bucket pointed at by an index in the Directory in Extendible Hashing.
+ */
+public class Bucket
+{
+	//          +-------------------------+
+	// bucket = |   HEADER   |   BUFFER   |
+	//          +-------------------------+
+	// 
+	// HEADER contains the length of the words in the BUFFER, and grows left to right.
+	// BUFFER contains the words, and grows right to left, but the words are NOT reversed.
+	// Ex: [ 3,4,4, <empty cells here>, S,u,n,J,a,v,a,U,o,f,C ] 
+	private char[] bucket;
+	
+	private int depth;
+	private int bitPattern;
+	
+	private int remainingSize;
+	private int numWords;	// also known as the header length
+	private int startOfBuffer;
+	
+	private Bucket nextBucket;
+	
+	// Where the contents are read from on first touch. Null once the contents are in memory. 
+	// Volatile since a snapshot reader and a writer may both read the contents first.
+	private volatile PageSource source;
+	private int pageNumber;
+	
+	// Bookkeeping of the BufferPool holding the contents in memory, if any.
+	BufferPool.Frame frame;
+	
+	// Pseudokeys of the words in this bucket and its chain. Not part of the contents, so it stays 
+	// in memory when they are evicted. Null if the directory does not keep filters.
+	private BloomFilter bloom;
+	
+	private Hasher<String> h;
+	
+	// The high bit of a length in the header is the word's CLOCK reference bit in cache mode.
+	private static final char LENGTH_MASK = 0x7fff;
+	private static final char REFERENCED = 0x8000;
+	
+	// Outcomes of insertIfAbsent.
+	static final int INSERTED = 1;
+	static final int PRESENT = 0;
+	static final int FULL = -1;
+	
+	// Where the CLOCK hand of cache mode resumes in the header.
+	private int hand;
+	
+	// Bytes taken by the capacity, header length, remaining size, start of buffer, next page, 
+	// depth, bit pattern and whether the bucket is chained. The last three let a directory be 
+	// rebuilt from its pages alone.
+	private static final int PAGE_HEADER_SIZE = 8 * Integer.BYTES;
+	
+	private static AtomicInteger ID = new AtomicInteger();
+	public int id;
+	
+	// Snapshots taken at an epoch see every bucket created in or before it, unchanged.
+	private static AtomicLong EPOCH = new AtomicLong();
+	private long epoch;
+	
+	/**
+	 * Constructs a new bucket.
+	 * 
+	 * @param capacity the maximum size of the bucket.
+	 */
+	public Bucket(int capacity)
+	{
+		this(capacity, 0);
+	}
+	
+	/**
+	 * Constructs a new bucket whose values are filtered with the given hasher.
+	 * 
+	 * @param capacity the maximum size of the bucket.
+	 * @param h the hasher used to compute pseudokeys when the bucket is split.
+	 */
+	public Bucket(int capacity, Hasher<String> h)
+	{
+		this(capacity, 0);
+		this.h = h;
+	}
+	
+	/**
+	 * Constructs a new bucket.
+	 * 
+	 * @param capacity the maximum size of the bucket.
+	 * @param newDepth the initial depth of the bucket.
+	 */
+	public Bucket(int capacity, int newDepth)
+	{
+		this.bucket = new char[capacity];
+		this.depth = newDepth;
+		this.bitPattern = -1;
+		this.remainingSize = capacity;
+		this.numWords = 0;
+		this.startOfBuffer = capacity;
+		this.nextBucket = null;
+		this.pageNumber = -1;
+		this.h = StringHasher.getInstance();
+		
+		this.id = Bucket.ID.getAndIncrement();
+		this.epoch = Bucket.EPOCH.get();
+	}
+	
+	/**
+	 * Creates an empty Bucket with the state of the input Bucket.
+	 * 
+	 * @param b bucket to copy state, but not the bucket header/buffer (contents) itself.
+	 */
+	public Bucket(Bucket b)
+	{
+		this.bucket = new char[b.getCapacity()];
+		this.depth = b.getDepth();
+		this.bitPattern = b.getBitPattern();
+		this.remainingSize = this.bucket.length;
+		this.numWords = 0;
+		this.startOfBuffer = this.bucket.length;
+		this.nextBucket = null;
+		this.pageNumber = -1;
+		this.h = b.h;
+		
+		this.id = Bucket.ID.getAndIncrement();
+		this.epoch = Bucket.EPOCH.get();
+	}
+	
+	/**
+	 * Constructs a bucket whose contents stay in page until they are first used.
+	 * 
+	 * @param depth the local depth of the bucket.
+	 * @param bitPattern the bit pattern of the bucket.
+	 * @param h the hasher used to compute pseudokeys when the bucket is split.
+	 * @param source the source of the page holding the contents.
+	 * @param pageNumber the page written by writePage(ByteBuffer, int, boolean) holding the contents.
+	 */
+	Bucket(int depth, int bitPattern, Hasher<String> h, PageSource source, int pageNumber)
+	{
+		this.depth = depth;
+		this.bitPattern = bitPattern;
+		this.h = h;
+		this.source = source;
+		this.pageNumber = pageNumber;
+		
+		this.id = Bucket.ID.getAndIncrement();
+		this.epoch = Bucket.EPOCH.get();
+	}
+	
+	/**
+	 * Copies the bucket, its contents and any buckets chained to it. The copy belongs to the 
+	 * current epoch and shares the bucket's filter.
+	 * 
+	 * @return the copy.
+	 */
+	Bucket copy()
+	{
+		fault();
+		
+		Bucket copy = new Bucket(this);
+		System.arraycopy(this.bucket, 0, copy.bucket, 0, this.bucket.length);
+		copy.remainingSize = this.remainingSize;
+		copy.numWords = this.numWords;
+		copy.startOfBuffer = this.startOfBuffer;
+		copy.hand = this.hand;
+		copy.bloom = this.bloom;
+		if (this.nextBucket != null)
+			copy.nextBucket = this.nextBucket.copy();
+		return copy;
+	}
+	
+	/**
+	 * Gets the epoch the bucket was created in. A bucket is never changed after a snapshot of 
+	 * its epoch or a later one is taken, until that snapshot is closed.
+	 * 
+	 * @return the epoch of the bucket.
+	 */
+	long getEpoch()
+	{
+		return this.epoch;
+	}
+	
+	/**
+	 * Ends the current epoch. Buckets created from now on belong to the next one.
+	 * 
+	 * @return the epoch that ended.
+	 */
+	static long nextEpoch()
+	{
+		return Bucket.EPOCH.getAndIncrement();
+	}
+	
+	/**
+	 * Gets the capacity of the bucket.
+	 * 
+	 * @return the capacity of the bucket.
+	 */
+	public int getCapacity()
+	{
+		fault();
+		return this.bucket.length;
+	}
+	
+	/**
+	 * Gets the depth of the bucket.
+	 * 
+	 * @return the local depth of the bucket.
+	 */
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	/**
+	 * Gets the bit pattern of the bucket.
+	 * 
+	 * @return the bit pattern of the bucket.
+	 */
+	public int getBitPattern()
+	{
+		return this.bitPattern;
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 0.
+	 */
+	public void incDepth0()
+	{
+		this.depth++;
+		
+		if (this.bitPattern == -1)
+			this.bitPattern = 0;
+		else
+			this.bitPattern = BitUtility.append0(this.bitPattern);
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 1.
+	 */
+	public void incDepth1()
+	{
+		this.depth++;
+		
+		if (this.bitPattern == -1)
+			this.bitPattern = 1;
+		else
+			this.bitPattern = BitUtility.append1(this.bitPattern);
+	}
+	
+	/**
+	 * Moves the bucket, and any buckets chained to it, to a new depth and bit pattern. Used when 
+	 * a bucket built for part of the pseudokey space is adopted by a larger directory.
+	 * 
+	 * @param newDepth the new local depth of the bucket.
+	 * @param newBitPattern the new bit pattern of the bucket.
+	 * @param newHasher the hasher of the directory adopting the bucket.
+	 */
+	void rebase(int newDepth, int newBitPattern, Hasher<String> newHasher)
+	{
+		fault();
+		
+		for (Bucket b = this; b != null; b = b.nextBucket) {
+			b.depth = newDepth;
+			b.bitPattern = newBitPattern;
+			b.h = newHasher;
+		}
+	}
+	
+	/**
+	 * Gets the remaining size of the bucket.
+	 * 
+	 * @return the remaining size of the bucket.
+	 */
+	public int getRemainingSize()
+	{
+		fault();
+		return this.remainingSize;
+	}
+	
+	/**
+	 * Create a new bucket and link to it.
+	 */
+	public void chainBucket()
+	{
+		fault();
+		
+		DirectoryEvents.Chain event = new DirectoryEvents.Chain();
+		event.begin();
+		
+		Bucket prev = this;
+		Bucket curr = this.nextBucket;	// might have to make a getNextBucket()
+		int length = 1;
+		
+		while (curr != null) {
+			prev = curr;
+			curr = curr.nextBucket;
+			length++;
+		}
+		prev.nextBucket = new Bucket(prev);
+		
+		if (event.shouldCommit()) {
+			event.chainLength = length;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Inserts a value into the bucket.
+	 * 
+	 * @param value The value to insert.
+	 * @return true if insert succeeded, false if there is not enough room to insert.
+	 */
+	public boolean insert(CharSequence value)
+	{
+		fault();
+		
+		if (value.length() > LENGTH_MASK)
+			throw new IllegalArgumentException("Values may be at most " + (int) LENGTH_MASK + " characters");
+		
+		// Return false if there is not enough room to store every character plus the length
+		if (this.remainingSize < value.length() + 1) {
+			// If the next bucket is not null, the directory must have reached it's max size and 
+			// called chainBucket(). In this case, insert value in the next bucket.
+			if (this.nextBucket != null)
+				return this.nextBucket.insert(value);
+			else
+				return false;
+		}
+		
+		// Find the proper position in header to insert value's length by a sequential search.
+		int offset = 0;
+		int valueLength = value.length();
+		int i = 0;
+		for (; i < this.numWords; i++) {
+			if (length(i) < valueLength) {
+				offset += length(i);
+			}
+			else if (length(i) == valueLength) {
+				// if value to insert is less than the current word in the bucket
+				if (compareTo(value, i, offset + length(i)) < 0) {
+					break;
+				}
+				else {
+					offset += length(i);
+				}
+			}
+			else {
+				break;
+			}
+		}
+		
+		insertAt(value, i, offset);
+		return true;
+	}
+	
+	/**
+	 * Inserts a value into the bucket unless it is already there. The scan that finds where value 
+	 * belongs also finds value itself, so the bucket is only read once.
+	 * 
+	 * @param value The value to insert.
+	 * @return INSERTED if value was inserted, PRESENT if the bucket or its chain already held it, 
+	 * or FULL if there is not enough room to insert.
+	 */
+	int insertIfAbsent(CharSequence value)
+	{
+		fault();
+		
+		if (value.length() > LENGTH_MASK)
+			throw new IllegalArgumentException("Values may be at most " + (int) LENGTH_MASK + " characters");
+		
+		// Words are sorted by length, then lexicographically, so stop at the first larger word.
+		int offset = 0;
+		int i = 0;
+		for (; i < this.numWords; i++) {
+			int cmp = compareTo(value, i, offset + length(i));
+			if (cmp < 0)
+				break;
+			if (cmp == 0)
+				return PRESENT;
+			offset += length(i);
+		}
+		
+		if (this.remainingSize < value.length() + 1) {
+			if (this.nextBucket != null)
+				return this.nextBucket.insertIfAbsent(value);
+			else
+				return FULL;
+		}
+		
+		// Values are inserted into the first bucket of the chain with room, and removes can make 
+		// room here after value went to a chained bucket.
+		for (Bucket chained = this.nextBucket; chained != null; chained = chained.nextBucket) {
+			if (chained.indexOf(value) >= 0)
+				return PRESENT;
+		}
+		
+		insertAt(value, i, offset);
+		return INSERTED;
+	}
+	
+	/**
+	 * Inserts a value at a position found by a scan of the header. There must be room for it.
+	 * 
+	 * @param value The value to insert.
+	 * @param i Index in the header where value's length goes.
+	 * @param offset Sum of the lengths in the header before i.
+	 */
+	private void insertAt(CharSequence value, int i, int offset)
+	{
+		// Subtract the number of bytes used to store 'value', and one more to store the length
+		int valueLength = value.length();
+		this.remainingSize -= (valueLength + 1);
+		
+		// Make room to insert length in header and word in buffer.
+		if (i != this.numWords) {
+			shiftRight(i, this.numWords-1, 1);
+		}
+		shiftLeft(this.startOfBuffer, this.bucket.length - offset - 1, valueLength);
+		
+		// Since we are inserting from the end of the array, offset must include the length of value
+		offset += valueLength;
+		this.startOfBuffer -= valueLength;
+		
+		// Insert the length into the header
+		this.bucket[i] = (char) valueLength;
+		
+		// Insert the word itself into the buffer.
+		writeStringToBucket(value, this.bucket.length - offset);
+		this.numWords++;
+	}
+	
+	/**
+	 * Searches this bucket, but not its chain, for a value.
+	 * 
+	 * @param value The value to search for.
+	 * @return the index of value in the header, or -1 if it is not in this bucket.
+	 */
+	private int indexOf(CharSequence value)
+	{
+		fault();
+		
+		int offset = 0;
+		for (int i = 0; i < this.numWords; i++) {
+			offset += length(i);
+			int cmp = compareTo(value, i, offset);
+			if (cmp < 0)
+				break;
+			if (cmp == 0)
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Removes a value from the bucket, or from the chained bucket holding it.
+	 * 
+	 * @param value The value to remove.
+	 * @return true if value was found and removed, false otherwise.
+	 */
+	public boolean remove(CharSequence value)
+	{
+		fault();
+		
+		// Words are sorted by length, then lexicographically, so stop at the first larger word.
+		int offset = 0;
+		for (int i = 0; i < this.numWords; i++) {
+			offset += length(i);
+			int cmp = compareTo(value, i, offset);
+			if (cmp < 0)
+				break;
+			if (cmp > 0)
+				continue;
+			
+			removeAt(i, offset);
+			return true;
+		}
+		
+		if (this.nextBucket != null)
+			return this.nextBucket.remove(value);
+		return false;
+	}
+	
+	/**
+	 * Searches for a value and sets its reference bit, so cache mode eviction passes over it once.
+	 * 
+	 * @param value The value to search for.
+	 * @return true if value was found, false otherwise.
+	 */
+	boolean touch(CharSequence value)
+	{
+		fault();
+		
+		int offset = 0;
+		for (int i = 0; i < this.numWords; i++) {
+			offset += length(i);
+			int cmp = compareTo(value, i, offset);
+			if (cmp < 0)
+				break;
+			if (cmp == 0) {
+				this.bucket[i] |= REFERENCED;
+				return true;
+			}
+		}
+		
+		if (this.nextBucket != null)
+			return this.nextBucket.touch(value);
+		return false;
+	}
+	
+	/**
+	 * Removes one word chosen by CLOCK: the hand sweeps the header from where it last stopped, 
+	 * clearing reference bits, and removes the first word whose bit was already clear. Chained 
+	 * buckets are not considered.
+	 * 
+	 * @return true if a word was removed, false if the bucket is empty.
+	 */
+	boolean evictOne()
+	{
+		fault();
+		
+		if (this.numWords == 0)
+			return false;
+		
+		// Two sweeps clear every bit, so a victim is always found.
+		for (int n = 0; n < 2 * this.numWords; n++) {
+			if (this.hand >= this.numWords)
+				this.hand = 0;
+			
+			if ((this.bucket[this.hand] & REFERENCED) != 0) {
+				this.bucket[this.hand] &= LENGTH_MASK;
+				this.hand++;
+				continue;
+			}
+			
+			int offset = 0;
+			for (int i = 0; i <= this.hand; i++)
+				offset += length(i);
+			removeAt(this.hand, offset);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Removes the word at an index of the header.
+	 * 
+	 * @param i Index of the word in the header.
+	 * @param offset Sum of the lengths in the header up to and including i.
+	 */
+	private void removeAt(int i, int offset)
+	{
+		int length = length(i);
+		erase(i, i);
+		shiftLeft(i+1, this.numWords-1, 1);
+		this.numWords--;
+		
+		erase(this.bucket.length-offset, this.bucket.length-offset+length-1);
+		shiftRight(this.startOfBuffer, this.bucket.length-offset-1, length);
+		this.startOfBuffer += length;
+	}
+	
+	/**
+	 * Copies every word in the bucket, and any buckets chained to it, into words.
+	 * 
+	 * @param words List to add the words to.
+	 */
+	void getWords(List<String> words)
+	{
+		fault();
+		
+		int offset = 0;
+		for (int i = 0; i < this.numWords; i++) {
+			offset += length(i);
+			words.add(String.copyValueOf(this.bucket, this.bucket.length-offset, length(i)));
+		}
+		
+		if (this.nextBucket != null)
+			this.nextBucket.getWords(words);
+	}
+	
+	/**
+	 * Checks if any buckets are chained to this bucket.
+	 * 
+	 * @return true if the bucket has a chained bucket, false otherwise.
+	 */
+	boolean isChained()
+	{
+		fault();
+		return this.nextBucket != null;
+	}
+	
+	/**
+	 * Drops the buckets chained to this bucket.
+	 */
+	void cutChain()
+	{
+		fault();
+		this.nextBucket = null;
+	}
+	
+	/**
+	 * Gets the bucket chained to this bucket.
+	 * 
+	 * @return the next chained bucket, or null if there is none.
+	 */
+	Bucket getNextBucket()
+	{
+		fault();
+		return this.nextBucket;
+	}
+	
+	/**
+	 * Searches for the given key in the bucket.
+	 * 
+	 * @param key The key to search for.
+	 * @return Index of key if found. -1 otherwise.
+	 */
+	public int search(String key)
+	{
+		fault();
+		
+		// Find ANY (there may be multiple) index of key.length() in the header.
+		int midIndexOfKeyInHeader = binarySearchHeader(key.length());
+		int curr = midIndexOfKeyInHeader;
+		
+		// If the word length is not found, try searching the next chained bucket.
+		if (curr < 0) {
+			if (this.nextBucket != null)
+				return this.nextBucket.search(key);
+			else
+				return -1;
+		}
+		
+		// Find offset to the word itself in the buffer.
+		int offset = 0;
+		for (int i = 0; i <= midIndexOfKeyInHeader; i++) {
+			offset += length(i);
+		}
+		
+		// Check if key is found
+		String word = String.copyValueOf(this.bucket, this.bucket.length-offset, length(curr));
+		if (key.compareTo(word) == 0)
+			return curr;
+		
+		// Scan left to find key
+		int currOffset = offset;
+		curr = midIndexOfKeyInHeader-1;
+		while (curr >= 0 && length(curr) == key.length()) {
+			currOffset -= length(curr);
+			word = String.copyValueOf(this.bucket, this.bucket.length-currOffset, length(curr));
+			if (key.compareTo(word) == 0)
+				return curr;
+			curr--;
+		}
+		
+		// Scan right to find key
+		currOffset = offset;
+		curr = midIndexOfKeyInHeader+1;
+		while (curr < this.numWords && length(curr) == key.length()) {
+			currOffset += length(curr);
+			word = String.copyValueOf(this.bucket, this.bucket.length-currOffset, length(curr));
+			if (key.compareTo(word) == 0)
+				return curr;
+			curr++;
+		}
+		
+		// Could not find word
+		if (this.nextBucket != null)
+			return this.nextBucket.search(key);
+		else
+			return -1;
+	}
+	
+	/**
+	 * Searches for the given key in the bucket, and counts the number of probes.
+	 * 
+	 * @param key The key to search for.
+	 * @return The number of probes to find key
+	 */
+	public int countProbes(String key)
+	{
+		fault();
+		
+		int numProbes = 0;
+		
+		// Find ANY (there may be multiple) index of key.length() in the header.
+		int midIndexOfKeyInHeader = binarySearchHeader(key.length());
+		int curr = midIndexOfKeyInHeader;
+		
+		// If the word length is not found, try searching the next chained bucket.
+		if (curr < 0) {
+			if (this.nextBucket != null) {
+				numProbes++;
+				return numProbes + this.nextBucket.countProbes(key);
+			}
+			else {
+				return -1;
+			}
+		}
+		
+		// Find offset to the word itself in the buffer.
+		int offsetToMidIndexOfKey = 0, currOffset = 0;
+		for (int i = 0; i <= midIndexOfKeyInHeader; i++) {
+			offsetToMidIndexOfKey += length(i);
+		}
+		
+		// Check if key is found
+		String word = String.copyValueOf(this.bucket, this.bucket.length-offsetToMidIndexOfKey, length(curr));
+		numProbes++;
+		if (key.compareTo(word) == 0)
+			return numProbes;
+		
+		// Scan left to find key
+		currOffset = offsetToMidIndexOfKey;
+		curr = midIndexOfKeyInHeader-1;
+		while (curr >= 0 && length(curr) == key.length()) {
+			currOffset -= length(curr);
+			word = String.copyValueOf(this.bucket, this.bucket.length-currOffset, length(curr));
+			numProbes++;
+			if (key.compareTo(word) == 0)
+				return numProbes;
+			
+			curr--;
+		}
+		
+		// Scan right to find key
+		currOffset = offsetToMidIndexOfKey;
+		curr = midIndexOfKeyInHeader+1;
+		while (curr < this.numWords && length(curr) == key.length()) {
+			currOffset += length(curr);
+			word = String.copyValueOf(this.bucket, this.bucket.length-currOffset, length(curr));
+			numProbes++;
+			if (key.compareTo(word) == 0)
+				return numProbes;
+			
+			curr++;
+		}
+		
+		// Could not find word
+		if (this.nextBucket != null) {
+			numProbes++;
+			return numProbes + this.nextBucket.countProbes(key);
+		}
+		else {
+			return -1;
+		}
+	}
+	
+	
+	/**
+	 * Searches for a batch of keys with a single scan of the bucket. The keys at 
+	 * positions[from..to) must be sorted the same way as the bucket: by length, then 
+	 * lexicographically.
+	 * 
+	 * @param keys The keys being searched for.
+	 * @param positions Positions in keys to search for, sorted as described above.
+	 * @param from First position to search for, inclusive.
+	 * @param to Last position to search for, exclusive.
+	 * @param result Receives the stored copy of every key found, at the key's position.
+	 * @param touch true to set the reference bit of every word found, as touch(CharSequence) does.
+	 */
+	void getAll(String[] keys, int[] positions, int from, int to, String[] result, boolean touch)
+	{
+		fault();
+		
+		int offset = 0;
+		int i = 0;
+		int q = from;
+		int unresolved = 0;
+		int[] misses = (this.nextBucket != null) ? new int[to-from] : null;
+		
+		// Merge the sorted keys with the sorted words in the bucket.
+		while (q < to) {
+			String key = keys[positions[q]];
+			int cmp = (i < this.numWords) ? compareTo(key, i, offset + length(i)) : -1;
+			
+			if (cmp == 0) {
+				// Do not advance past the word; the next key may be a duplicate of this one.
+				result[positions[q]] = String.copyValueOf(this.bucket, 
+						this.bucket.length - offset - length(i), length(i));
+				if (touch)
+					this.bucket[i] |= REFERENCED;
+				q++;
+			}
+			else if (cmp < 0) {
+				if (misses != null)
+					misses[unresolved++] = positions[q];
+				q++;
+			}
+			else {
+				offset += length(i);
+				i++;
+			}
+		}
+		
+		// Words in chained buckets are sorted independently, so scan them for what is left.
+		if (unresolved > 0)
+			this.nextBucket.getAll(keys, misses, 0, unresolved, result, touch);
+	}
+	
+	/**
+	 * Compares a key to a word in the bucket by length, then lexicographically.
+	 * 
+	 * @param key The key to compare.
+	 * @param index Index of the word in the header.
+	 * @param offset Sum of the lengths in the header up to and including index.
+	 * @return a negative integer, zero, or a positive integer as key is less than, equal to, or 
+	 * greater than the word.
+	 */
+	private int compareTo(CharSequence key, int index, int offset)
+	{
+		int length = length(index);
+		if (key.length() != length)
+			return key.length() - length;
+		
+		int start = this.bucket.length - offset;
+		for (int c = 0; c < length; c++) {
+			if (key.charAt(c) != this.bucket[start+c])
+				return key.charAt(c) - this.bucket[start+c];
+		}
+		return 0;
+	}
+	
+	/**
+	 * Gets the length of a word from the header, without its reference bit.
+	 * 
+	 * @param index Index of the word in the header.
+	 * @return the length of the word.
+	 */
+	private int length(int index)
+	{
+		return this.bucket[index] & LENGTH_MASK;
+	}
+	
+	private int binarySearchHeader(int length)
+	{
+		int l = 0, r = this.numWords-1, m = mid(l, r);
+		while (l <= r) {
+			if (length < length(m)) {
+				r = m-1;
+				m = mid(l, r);
+			}
+			else if (length > length(m)) {
+				l = m+1;
+				m = mid(l, r);
+			}
+			else {
+				return m;
+			}
+		}
+		
+		// At this point, r < l. Did not find length in header.
+		return -1;
+	}
+	
+	private void erase(int start, int end)
+	{
+		for (int i = start; i <= end; i++)
+			this.bucket[i] = ' ';
+		this.remainingSize += end-start+1;
+	}
+	
+	public void shiftRight(int start, int end, int numberOfShifts)
+	{
+		for (int i = end; i >= start; i--) {
+			bucket[i+numberOfShifts] = bucket[i];
+		}
+		for (int i = start; i < start+numberOfShifts; i++) {
+			bucket[i] = ' ';
+		}
+	}
+	
+	public void shiftLeft(int start, int end, int numberOfShifts)
+	{
+		for (int i = start; i <= end; i++) {
+			bucket[i-numberOfShifts] = bucket[i];
+		}
+		for (int i = end; i > end-numberOfShifts; i--) {
+			bucket[i] = ' ';
+		}
+	}
+	
+	public void writeStringToBucket(CharSequence value, int start)
+	{
+		for (int i = 0; i < value.length(); i++) {
+			bucket[start+i] = value.charAt(i);
+		}
+	}
+	
+	/**
+	 * Filters all values in the bucket that does not start with bitPattern into b.
+	 * 
+	 * @param b Bucket to move values that do not fit the bitPattern filter
+	 * @param bitPattern Filter
+	 */
+	public void filter(Bucket b, int bitPattern)
+	{
+		fault();
+		
+		int offset = 0;
+		for (int i = 0; i < this.numWords; i++) {
+			offset += length(i);
+			String word = String.copyValueOf(this.bucket, this.bucket.length-offset, length(i)); 
+			
+			if (BitUtility.getLeftMostBits(h.hash(word), this.depth) != bitPattern) {
+				b.insert(word);
+				
+				erase(i, i);				
+				shiftLeft(i+1, this.numWords-1, 1);
+				i--;
+				this.numWords--;
+				
+				erase(this.bucket.length-offset, this.bucket.length-offset+word.length()-1);
+				shiftRight(startOfBuffer, this.bucket.length-offset-1, word.length());
+				offset -= word.length();
+				startOfBuffer += word.length();
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of bytes a page holding a bucket of the given capacity takes.
+	 * 
+	 * @param capacity the capacity of the bucket.
+	 * @return the size of the page in bytes.
+	 */
+	static int getPageSize(int capacity)
+	{
+		return PAGE_HEADER_SIZE + capacity * Character.BYTES;
+	}
+	
+	/**
+	 * Writes the bucket's contents, but not any chained buckets, to a page.
+	 * 
+	 * @param out Buffer to write the page at the current position of.
+	 * @param nextPage Number of the page holding the next chained bucket, or -1 if there is none.
+	 * @param chained true if the bucket is chained to another one, false if it is a head bucket 
+	 * referenced by the directory.
+	 */
+	void writePage(ByteBuffer out, int nextPage, boolean chained)
+	{
+		fault();
+		
+		out.putInt(this.bucket.length);
+		out.putInt(this.numWords);
+		out.putInt(this.remainingSize);
+		out.putInt(this.startOfBuffer);
+		out.putInt(nextPage);
+		out.putInt(this.depth);
+		out.putInt(this.bitPattern);
+		out.putInt(chained ? 1 : 0);
+		for (char c : this.bucket)
+			out.putChar(c);
+	}
+	
+	/**
+	 * Constructs a bucket from the header of a page, leaving its contents in the page until they 
+	 * are first used.
+	 * 
+	 * @param page A page written by writePage(ByteBuffer, int, boolean).
+	 * @param h the hasher used to compute pseudokeys when the bucket is split.
+	 * @param source the source of the page.
+	 * @param pageNumber the number of the page in source.
+	 * @return the bucket.
+	 */
+	static Bucket fromPage(ByteBuffer page, Hasher<String> h, PageSource source, int pageNumber)
+	{
+		return new Bucket(page.getInt(20), page.getInt(24), h, source, pageNumber);
+	}
+	
+	/**
+	 * Gets the capacity of the bucket held by a page.
+	 * 
+	 * @param page A page written by writePage(ByteBuffer, int, boolean).
+	 * @return the capacity, which is 0 for a page that was never written.
+	 */
+	static int getPageCapacity(ByteBuffer page)
+	{
+		return page.getInt(0);
+	}
+	
+	/**
+	 * Gets the page holding the next chained bucket.
+	 * 
+	 * @param page A page written by writePage(ByteBuffer, int, boolean).
+	 * @return the number of the next page, or -1 if there is none.
+	 */
+	static int getNextPage(ByteBuffer page)
+	{
+		return page.getInt(16);
+	}
+	
+	/**
+	 * Checks if a page holds a chained bucket rather than a head bucket.
+	 * 
+	 * @param page A page written by writePage(ByteBuffer, int, boolean).
+	 * @return true if the page holds a chained bucket.
+	 */
+	static boolean isChainedPage(ByteBuffer page)
+	{
+		return page.getInt(28) != 0;
+	}
+	
+	/**
+	 * Gets the filter of the pseudokeys in the bucket and its chain. Does not read the contents.
+	 * 
+	 * @return the filter, or null if the bucket has none.
+	 */
+	BloomFilter getBloomFilter()
+	{
+		return this.bloom;
+	}
+	
+	/**
+	 * Sets the filter of the pseudokeys in the bucket and its chain.
+	 * 
+	 * @param bloom the filter, or null to remove it.
+	 */
+	void setBloomFilter(BloomFilter bloom)
+	{
+		this.bloom = bloom;
+	}
+	
+	/**
+	 * Checks if the bucket's contents are in memory.
+	 * 
+	 * @return true if the contents are in memory, false if they will be read on first use.
+	 */
+	boolean isResident()
+	{
+		return this.source == null;
+	}
+	
+	/**
+	 * Gets the page the bucket's contents are stored in.
+	 * 
+	 * @return the page number, or -1 if the contents have never been written to a page.
+	 */
+	int getPageNumber()
+	{
+		return this.pageNumber;
+	}
+	
+	/**
+	 * Sets the page the bucket's contents are written to when they are evicted.
+	 * 
+	 * @param page the page number.
+	 */
+	void setPageNumber(int page)
+	{
+		this.pageNumber = page;
+	}
+	
+	/**
+	 * Drops the bucket's contents and its chain from memory. They must already be written to 
+	 * their pages in source, linked by their next page numbers, and are read back the next time 
+	 * they are used.
+	 * 
+	 * @param source the source holding the bucket's page.
+	 */
+	void evict(PageSource source)
+	{
+		this.bucket = null;
+		this.nextBucket = null;
+		this.source = source;
+	}
+	
+	/**
+	 * Reads the bucket's contents from its page, if they have not been read yet. Chained buckets 
+	 * are not read until they are used themselves.
+	 */
+	private void fault()
+	{
+		if (this.source == null)
+			return;
+		
+		synchronized (this) {
+			PageSource pages = this.source;
+			if (pages == null)
+				return;
+			
+			ByteBuffer in = pages.getPage(this.pageNumber);
+			
+			this.bucket = new char[in.getInt(0)];
+			this.numWords = in.getInt(4);
+			this.remainingSize = in.getInt(8);
+			this.startOfBuffer = in.getInt(12);
+			int nextPage = in.getInt(16);
+			for (int i = 0; i < this.bucket.length; i++)
+				this.bucket[i] = in.getChar(PAGE_HEADER_SIZE + i * Character.BYTES);
+			
+			if (nextPage >= 0)
+				this.nextBucket = new Bucket(this.depth, this.bitPattern, this.h, pages, nextPage);
+			
+			// Cleared last, so a thread that sees it cleared also sees the contents.
+			this.source = null;
+		}
+	}
+	
+	/**
+	 * Calculates the midpoint between two integers.
+	 * 
+	 * @param left One endpoint.
+	 * @param right Another endpoint.
+	 * @return The midpoint between left and right.
+	 */
+	private int mid(int left, int right)
+	{
+		if (left <= right)
+			return (right-left)/2 + left;
+		else
+			return (left-right)/2 + right;
+	}
+	
+	public void printBucket()
+	{
+		fault();
+		
+		// Print bucket id, depth, and bit pattern
+		String bitStr;
+		if (this.bitPattern == -1 || this.depth == 0)
+			bitStr = "_";
+		else
+			bitStr = String.format("%"+this.depth+"s", Integer.toBinaryString(this.bitPattern));
+		bitStr = bitStr.replace(' ', '0');
+		
+		System.out.printf("|B: %d D: %d Bit: %s|", this.id, this.depth, bitStr);
+		
+		// Print bucket contents
+		String header = "", buffer = "";
+		int offset = 0;
+		for (int i = 0; i < this.numWords; i++) {
+			header += length(i);
+			offset += length(i);
+			String word = String.copyValueOf(this.bucket, this.bucket.length-offset, length(i));
+			buffer = word + buffer;;
+		}
+		System.out.print(header + "..." + this.remainingSize + " free bytes..." + buffer);
+		
+		// Print next bucket (if any)
+		if (this.nextBucket != null) {
+			System.out.print(" -> (next bucket: " + this.nextBucket.id + ")" + "\n                           -> ");
+			this.nextBucket.printBucket();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * .BucketFlusher.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Writes back the dirty buckets of a BufferPool on a background thread.
+ *
+ * Every round collects all dirty buckets that are not pinned, sorts them by page, and writes each
+ * run of consecutive pages with a single gathering write. Inserts never wait on disk I/O unless
+ * they ask for FLUSHED or FSYNCED durability, in which case they wait for the next round to
+ * finish. Everyone waiting at the same time is covered by that one round.
+ */
+public class BucketFlusher implements Runnable
+{
+	private BufferPool pool;
+	private long intervalMillis;
+	private Thread thread;
+	private volatile boolean running;
+	
+	// Rounds are numbered by the requests they cover. Guarded by this.
+	private long requested;
+	private long completed;
+	private long forceRequested;
+	private RuntimeException failure;
+	
+	/**
+	 * Constructs a BucketFlusher and attaches it to pool. Call start() to begin flushing.
+	 * 
+	 * @param pool Pool to write back dirty buckets of.
+	 * @param intervalMillis Longest time a dirty bucket waits before a round writes it back.
+	 */
+	public BucketFlusher(BufferPool pool, long intervalMillis)
+	{
+		this.pool = pool;
+		this.intervalMillis = intervalMillis;
+		this.thread = new Thread(this, "BucketFlusher");
+		this.thread.setDaemon(true);
+	}
+	
+	/**
+	 * Starts the background thread.
+	 */
+	public void start()
+	{
+		this.running = true;
+		this.pool.setFlusher(this);
+		this.thread.start();
+	}
+	
+	/**
+	 * Stops the background thread after a final round.
+	 * 
+	 * @throws InterruptedException when interrupted while waiting for the thread to stop.
+	 */
+	public void stop() throws InterruptedException
+	{
+		this.running = false;
+		synchronized (this) {
+			notifyAll();
+		}
+		this.thread.join();
+		this.pool.setFlusher(null);
+	}
+	
+	/**
+	 * Waits until every bucket changed before the call is as durable as requested.
+	 * 
+	 * @param durability how far the changes must reach.
+	 */
+	public synchronized void sync(Durability durability)
+	{
+		if (durability == Durability.NONE)
+			return;
+		
+		long ticket = ++this.requested;
+		if (durability == Durability.FSYNCED)
+			this.forceRequested = ticket;
+		notifyAll();
+		
+		try {
+			while (this.completed < ticket) {
+				if (this.failure != null)
+					throw this.failure;
+				if (! this.running)
+					throw new IllegalStateException("BucketFlusher is not running");
+				wait();
+			}
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the flusher", ie);
+		}
+	}
+	
+	public void run()
+	{
+		while (true) {
+			long target;
+			boolean force;
+			boolean last;
+			
+			synchronized (this) {
+				if (this.running && this.requested == this.completed) {
+					try {
+						wait(this.intervalMillis);
+					}
+					catch (InterruptedException ie) {
+						this.running = false;
+					}
+				}
+				target = this.requested;
+				force = this.forceRequested > this.completed;
+				last = ! this.running;
+			}
+			
+			try {
+				flushRound(force);
+			}
+			catch (RuntimeException re) {
+				synchronized (this) {
+					this.failure = re;
+					notifyAll();
+				}
+				return;
+			}
+			
+			synchronized (this) {
+				this.completed = target;
+				notifyAll();
+			}
+			
+			if (last)
+				return;
+		}
+	}
+	
+	/**
+	 * Writes every dirty bucket that is not pinned, grouping consecutive pages.
+	 * 
+	 * @param force true to force the writes to disk afterwards.
+	 */
+	private void flushRound(boolean force)
+	{
+		SortedMap<Integer, ByteBuffer> pages = this.pool.collectDirty();
+		BucketStore store = this.pool.getStore();
+		
+		try {
+			List<ByteBuffer> run = new ArrayList<ByteBuffer>();
+			int runStart = -1;
+			for (Map.Entry<Integer, ByteBuffer> page : pages.entrySet()) {
+				if (! run.isEmpty() && page.getKey() != runStart + run.size()) {
+					store.writeRun(runStart, run.toArray(new ByteBuffer[run.size()]));
+					run.clear();
+				}
+				if (run.isEmpty())
+					runStart = page.getKey();
+				run.add(page.getValue());
+			}
+			if (! run.isEmpty())
+				store.writeRun(runStart, run.toArray(new ByteBuffer[run.size()]));
+			
+			if (force)
+				store.force();
+		}
+		finally {
+			this.pool.flushed(pages.keySet());
+		}
+	}
+}
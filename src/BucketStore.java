@@ -0,0 +1,234 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * .BucketStore.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A file of fixed-size bucket pages. Buckets evicted from a BufferPool are written here, and read
+ * back the next time they are used. Every page records its bucket's depth and bit pattern, so a 
+ * store reopened with open(String, int) can be handed to Directory.open to rebuild the table.
+ */
+public class BucketStore implements PageSource
+{
+	private String fileName;
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private int pageSize;
+	
+	private int pageCount;
+	private Deque<Integer> freePages;
+	
+	/**
+	 * Constructs a BucketStore backed by fileName. Any existing contents are discarded.
+	 * 
+	 * @param fileName File to store pages in.
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @throws FileNotFoundException when the file cannot be created or opened.
+	 */
+	public BucketStore(String fileName, int bucketSizeInBytes) throws FileNotFoundException
+	{
+		this(fileName, bucketSizeInBytes, true);
+	}
+	
+	/**
+	 * Opens the BucketStore backed by fileName, keeping its pages. Every page is taken until 
+	 * Directory.open frees those no bucket uses.
+	 * 
+	 * @param fileName File the pages were stored in. Created empty if it does not exist.
+	 * @param bucketSizeInBytes the size of each bucket, which must match the stored pages.
+	 * @return the store.
+	 * @throws FileNotFoundException when the file cannot be created or opened.
+	 */
+	public static BucketStore open(String fileName, int bucketSizeInBytes) throws FileNotFoundException
+	{
+		return new BucketStore(fileName, bucketSizeInBytes, false);
+	}
+	
+	private BucketStore(String fileName, int bucketSizeInBytes, boolean truncate) throws FileNotFoundException
+	{
+		this.pageSize = Bucket.getPageSize(bucketSizeInBytes);
+		try {
+			this.file = new RandomAccessFile(fileName, "rw");
+			if (truncate)
+				this.file.setLength(0);
+			
+			// A page cut short by a crash is dropped.
+			this.pageCount = (int) (this.file.length() / this.pageSize);
+		}
+		catch (FileNotFoundException fnfe) {
+			ErrorLogger.logException("BucketStore(String, int, boolean)",
+									 fileName + " cannot be created or opened.",
+									 fnfe);
+			throw fnfe;
+		}
+		catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		
+		this.fileName = fileName;
+		this.channel = this.file.getChannel();
+		this.freePages = new ArrayDeque<Integer>();
+	}
+	
+	/**
+	 * Gets the number of bytes in a page.
+	 * 
+	 * @return the size of a page.
+	 */
+	public int getPageSize()
+	{
+		return this.pageSize;
+	}
+	
+	/**
+	 * Gets the number of pages in the file, including free pages.
+	 * 
+	 * @return the number of pages.
+	 */
+	public synchronized int getPageCount()
+	{
+		return this.pageCount;
+	}
+	
+	/**
+	 * Reserves a page, reusing a freed page if there is one.
+	 * 
+	 * @return the number of the reserved page.
+	 */
+	public synchronized int allocate()
+	{
+		if (! this.freePages.isEmpty())
+			return this.freePages.pop();
+		return this.pageCount++;
+	}
+	
+	/**
+	 * Releases a page so it can be reused.
+	 * 
+	 * @param page Number of the page.
+	 */
+	public synchronized void free(int page)
+	{
+		this.freePages.push(page);
+	}
+	
+	/**
+	 * Reads a page from the file.
+	 * 
+	 * @param page Number of the page.
+	 * @return A buffer holding the page.
+	 */
+	public ByteBuffer getPage(int page)
+	{
+		ByteBuffer in = ByteBuffer.allocate(this.pageSize);
+		try {
+			long position = getOffset(page);
+			while (in.hasRemaining()) {
+				if (this.channel.read(in, position + in.position()) < 0)
+					throw new IOException("Page " + page + " is past the end of " + this.fileName);
+			}
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("BucketStore.getPage(int)",
+									 "Cannot read page " + page + " from " + this.fileName,
+									 ioe);
+			throw new UncheckedIOException(ioe);
+		}
+		in.flip();
+		return in;
+	}
+	
+	/**
+	 * Writes an encoded page.
+	 * 
+	 * @param page Number of the page.
+	 * @param out Buffer holding the page.
+	 */
+	public void write(int page, ByteBuffer out)
+	{
+		try {
+			long position = getOffset(page);
+			while (out.hasRemaining())
+				this.channel.write(out, position + out.position());
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("BucketStore.write(int, ByteBuffer)",
+									 "Cannot write page " + page + " to " + this.fileName,
+									 ioe);
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	/**
+	 * Writes encoded pages with consecutive page numbers in a single gathering write.
+	 * 
+	 * @param firstPage Number of the first page.
+	 * @param pages Buffers holding the pages, in page order.
+	 */
+	public synchronized void writeRun(int firstPage, ByteBuffer[] pages)
+	{
+		try {
+			long remaining = 0;
+			for (ByteBuffer page : pages)
+				remaining += page.remaining();
+			
+			// Gathering writes use the channel's position, hence the lock.
+			this.channel.position(getOffset(firstPage));
+			while (remaining > 0)
+				remaining -= this.channel.write(pages);
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("BucketStore.writeRun(int, ByteBuffer[])",
+									 "Cannot write pages starting at " + firstPage + " to " + this.fileName,
+									 ioe);
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	/**
+	 * Forces every page written so far to disk.
+	 */
+	public void force()
+	{
+		try {
+			this.channel.force(false);
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("BucketStore.force(void)",
+									 "Cannot force " + this.fileName + " to disk",
+									 ioe);
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	/**
+	 * Gets the position of a page in the file.
+	 * 
+	 * @param page Number of the page.
+	 * @return the offset of the page in bytes.
+	 */
+	public long getOffset(int page)
+	{
+		return (long) page * this.pageSize;
+	}
+	
+	/**
+	 * Closes the file.
+	 * 
+	 * @throws IOException when the file cannot be closed.
+	 */
+	public void close() throws IOException
+	{
+		this.file.close();
+	}
+}
@@ -0,0 +1,505 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * .BufferPool.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Keeps a fixed number of bucket contents in memory, and the rest in a BucketStore.
+ *
+ * A Directory pins a bucket before using it and unpins it afterwards, saying whether it changed.
+ * When a bucket that is not in memory is pinned, a frame is freed with the CLOCK algorithm: the
+ * hand sweeps the frames, clearing reference bits, until it finds an unpinned bucket that has not
+ * been used since the last sweep. That bucket is written back if it is dirty, then dropped from
+ * memory until it is used again.
+ *
+ * A frame holds a bucket together with the buckets chained to it. The chain is written as linked 
+ * pages, one per bucket, and each chained bucket is read back the first time it is used.
+ *
+ * Once the pool has been synced with FLUSHED or FSYNCED durability, the store is kept 
+ * recoverable by Directory.open. A split bucket is written to a new page instead of over its 
+ * old one, and the pages of split and discarded buckets are only reused after the next FSYNCED 
+ * sync. Until then, the old pages still hold every value of their range in case the new pages 
+ * never reach the disk.
+ *
+ * A pool constructed with a heap watermark has no fixed number of frames. It keeps every bucket in
+ * memory while the heap is under the watermark. Past it, every miss evicts one bucket more than
+ * it reads, so the pool shrinks until the heap is back under the watermark. Large loads then only
+ * slow down as more of their buckets are on disk, instead of running out of memory.
+ */
+public class BufferPool
+{
+	private BucketStore store;
+	private Frame[] frames;
+	private int hand;
+	
+	private int resident;		/* frames holding a bucket */
+	private int limit;			/* most frames that may hold a bucket */
+	private double heapWatermark;	/* 0 if the pool has a fixed number of frames */
+	
+	private BucketFlusher flusher;	/* null if dirty buckets are only written back on eviction */
+	private Set<Integer> inFlight;	/* pages the flusher is writing */
+	private Set<Integer> discarded;	/* in flight pages to free once they are written */
+	
+	private boolean recoverable;	/* true once pages are kept for Directory.open */
+	private Set<Integer> retired;	/* old pages kept until the next FSYNCED sync */
+	
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long writes;
+	
+	/**
+	 * Constructs a BufferPool.
+	 * 
+	 * @param store Store to write evicted buckets to.
+	 * @param frames Number of buckets kept in memory. Must be at least 2, since a split needs both
+	 * the bucket being split and its new sibling in memory.
+	 */
+	public BufferPool(BucketStore store, int frames)
+	{
+		if (frames < 2)
+			throw new IllegalArgumentException("A BufferPool needs at least 2 frames");
+		
+		this.store = store;
+		this.frames = new Frame[frames];
+		this.hand = 0;
+		this.limit = frames;
+		this.inFlight = new HashSet<Integer>();
+		this.discarded = new HashSet<Integer>();
+		this.retired = new HashSet<Integer>();
+	}
+	
+	/**
+	 * Constructs a BufferPool that keeps buckets in memory until the heap fills past a watermark. 
+	 * The used heap includes garbage that has not been collected yet, so buckets may be written 
+	 * to the store somewhat before they have to be.
+	 * 
+	 * @param store Store to write evicted buckets to.
+	 * @param heapWatermark the fraction of the maximum heap past which buckets are evicted, 
+	 * between 0 and 1 exclusive.
+	 */
+	public BufferPool(BucketStore store, double heapWatermark)
+	{
+		this(store, 16);
+		if (! (heapWatermark > 0 && heapWatermark < 1))
+			throw new IllegalArgumentException("Heap watermark must be between 0 and 1: " + heapWatermark);
+		
+		this.heapWatermark = heapWatermark;
+	}
+	
+	/**
+	 * Ensures a bucket is in memory and cannot be evicted until it is unpinned.
+	 * 
+	 * @param b Bucket to pin.
+	 */
+	public synchronized void pin(Bucket b)
+	{
+		Frame f = b.frame;
+		if (f != null) {
+			this.hits++;
+		}
+		else {
+			// Buckets that were never evicted are still in memory and only need a frame.
+			if (! b.isResident())
+				this.misses++;
+			
+			f = new Frame(b, findFreeFrame());
+			this.frames[f.index] = f;
+			this.resident++;
+			b.frame = f;
+		}
+		
+		f.pins++;
+		f.referenced = true;
+	}
+	
+	/**
+	 * Allows a bucket to be evicted once nothing else has it pinned.
+	 * 
+	 * @param b Bucket to unpin.
+	 * @param dirty true if the bucket was changed while it was pinned.
+	 */
+	public synchronized void unpin(Bucket b, boolean dirty)
+	{
+		Frame f = b.frame;
+		if (f == null || f.pins == 0)
+			throw new IllegalStateException("Bucket " + b.id + " is not pinned");
+		
+		f.pins--;
+		f.dirty |= dirty;
+	}
+	
+	/**
+	 * Drops a bucket that is no longer referenced by the directory, without writing it back.
+	 * 
+	 * @param b Bucket to drop.
+	 */
+	public synchronized void discard(Bucket b)
+	{
+		Frame f = b.frame;
+		if (f != null) {
+			this.frames[f.index] = null;
+			this.resident--;
+			b.frame = null;
+		}
+		
+		for (Bucket chained = b; chained != null; chained = chained.getNextBucket()) {
+			if (chained.getPageNumber() >= 0)
+				release(chained.getPageNumber());
+		}
+	}
+	
+	/**
+	 * Moves a bucket whose depth changed to a new page the next time it is written, if the store 
+	 * is kept recoverable. Its old page is kept until the next FSYNCED sync, since it still holds 
+	 * the values of the bucket's old range.
+	 * 
+	 * @param b Bucket that was split.
+	 */
+	synchronized void relocate(Bucket b)
+	{
+		if (! this.recoverable || b.getPageNumber() < 0)
+			return;
+		
+		release(b.getPageNumber());
+		b.setPageNumber(-1);
+	}
+	
+	/**
+	 * Keeps the store recoverable from now on, as if the pool had been synced.
+	 */
+	synchronized void setRecoverable()
+	{
+		this.recoverable = true;
+	}
+	
+	/**
+	 * Writes back every dirty bucket in memory.
+	 */
+	public synchronized void flush()
+	{
+		for (Frame f : this.frames) {
+			if (f != null && f.dirty)
+				writeBack(f);
+		}
+	}
+	
+	/**
+	 * Waits until every change made so far is as durable as requested. Uses the background
+	 * flusher if there is one, otherwise writes back every dirty bucket on the calling thread.
+	 * 
+	 * @param durability how far the changes must reach.
+	 */
+	public void sync(Durability durability)
+	{
+		if (durability == Durability.NONE)
+			return;
+		
+		// Pages retired before the sync are only replaced by pages it writes.
+		BucketFlusher f;
+		Set<Integer> replaced;
+		synchronized (this) {
+			this.recoverable = true;
+			replaced = (durability == Durability.FSYNCED) ? new HashSet<Integer>(this.retired) : null;
+			
+			f = this.flusher;
+			if (f == null) {
+				flush();
+				if (durability == Durability.FSYNCED)
+					this.store.force();
+			}
+		}
+		
+		// Wait without holding the pool, since the flusher needs it to collect dirty buckets.
+		if (f != null)
+			f.sync(durability);
+		
+		if (replaced != null) {
+			synchronized (this) {
+				for (int page : replaced) {
+					this.retired.remove(page);
+					this.store.free(page);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sets the background flusher that writes back dirty buckets.
+	 * 
+	 * @param flusher the flusher, or null to only write back on eviction.
+	 */
+	synchronized void setFlusher(BucketFlusher flusher)
+	{
+		this.flusher = flusher;
+	}
+	
+	/**
+	 * Encodes every dirty bucket that is not pinned, with its chain, and marks it clean. Its pages 
+	 * stay in flight until flushed(Set) is called, so it is not evicted and written back out of 
+	 * order meanwhile.
+	 * 
+	 * @return the encoded pages, by page number.
+	 */
+	synchronized SortedMap<Integer, ByteBuffer> collectDirty()
+	{
+		SortedMap<Integer, ByteBuffer> pages = new TreeMap<Integer, ByteBuffer>();
+		for (Frame f : this.frames) {
+			// Pinned buckets may be in the middle of a change.
+			if (f == null || ! f.dirty || f.pins > 0 || this.inFlight.contains(f.bucket.getPageNumber()))
+				continue;
+			
+			SortedMap<Integer, ByteBuffer> chain = encode(f.bucket);
+			pages.putAll(chain);
+			this.inFlight.addAll(chain.keySet());
+			f.dirty = false;
+			this.writes++;
+		}
+		return pages;
+	}
+	
+	/**
+	 * Marks pages returned by collectDirty() as written, and frees those discarded meanwhile.
+	 * 
+	 * @param pages the pages that were written.
+	 */
+	synchronized void flushed(Set<Integer> pages)
+	{
+		this.inFlight.removeAll(pages);
+		for (int page : pages) {
+			if (this.discarded.remove(page))
+				this.store.free(page);
+		}
+		notifyAll();
+	}
+	
+	/**
+	 * Writes back every dirty bucket, forces them to disk and closes the store.
+	 * 
+	 * @throws IOException when the store cannot be closed.
+	 */
+	public synchronized void close() throws IOException
+	{
+		flush();
+		this.store.force();
+		this.store.close();
+	}
+	
+	public synchronized long getHits()
+	{
+		return this.hits;
+	}
+	
+	public synchronized long getMisses()
+	{
+		return this.misses;
+	}
+	
+	public synchronized long getEvictions()
+	{
+		return this.evictions;
+	}
+	
+	public synchronized long getWrites()
+	{
+		return this.writes;
+	}
+	
+	/**
+	 * Gets the fraction of pins that found the bucket already in memory.
+	 * 
+	 * @return the hit rate, or 0 if nothing has been pinned.
+	 */
+	public synchronized double getHitRate()
+	{
+		long pins = this.hits + this.misses;
+		return (pins == 0) ? 0 : (double) this.hits / pins;
+	}
+	
+	/**
+	 * Gets the number of frames in the pool.
+	 * 
+	 * @return the most buckets kept in memory, which changes with the heap if the pool has a 
+	 * heap watermark.
+	 */
+	public synchronized int getFrameCount()
+	{
+		return this.limit;
+	}
+	
+	/**
+	 * Gets the store evicted buckets are written to.
+	 * 
+	 * @return the store of the pool.
+	 */
+	BucketStore getStore()
+	{
+		return this.store;
+	}
+	
+	/**
+	 * Finds an empty frame, evicting a bucket if every frame is in use.
+	 * 
+	 * @return the index of the empty frame.
+	 */
+	private int findFreeFrame()
+	{
+		if (this.heapWatermark > 0)
+			resize();
+		
+		// Three sweeps clear every reference bit and allow dirty victims, so a victim is found
+		// unless everything is pinned or being flushed.
+		for (int i = 0; i < 3 * this.frames.length; i++) {
+			int index = this.hand;
+			this.hand = (this.hand + 1) % this.frames.length;
+			
+			Frame f = this.frames[index];
+			if (f == null) {
+				if (this.resident < this.limit)
+					return index;
+				continue;
+			}
+			
+			if (f.pins > 0 || this.inFlight.contains(f.bucket.getPageNumber()))
+				continue;
+			
+			// Leave dirty buckets for the flusher on the first sweep, so eviction rarely writes.
+			if (f.dirty && this.flusher != null && i < this.frames.length)
+				continue;
+			
+			if (f.referenced) {
+				f.referenced = false;
+				continue;
+			}
+			
+			evict(f);
+			if (this.resident < this.limit)
+				return index;
+		}
+		
+		throw new IllegalStateException("Every frame in the BufferPool is pinned");
+	}
+	
+	/**
+	 * Grows the pool by a frame while the heap is under the watermark, and shrinks it by a frame 
+	 * while it is over.
+	 */
+	private void resize()
+	{
+		Runtime r = Runtime.getRuntime();
+		long used = r.totalMemory() - r.freeMemory();
+		if (used > this.heapWatermark * r.maxMemory()) {
+			this.limit = Math.max(2, Math.min(this.limit, this.resident) - 1);
+		}
+		else if (this.resident == this.limit) {
+			this.limit++;
+			if (this.limit > this.frames.length)
+				this.frames = Arrays.copyOf(this.frames, 2 * this.frames.length);
+		}
+	}
+	
+	/**
+	 * Frees a page no bucket uses any more, once it is safe to write over.
+	 * 
+	 * @param page Number of the page.
+	 */
+	private void release(int page)
+	{
+		// A page still being written by the flusher cannot be handed out again until it is written.
+		if (this.recoverable)
+			this.retired.add(page);
+		else if (this.inFlight.contains(page))
+			this.discarded.add(page);
+		else
+			this.store.free(page);
+	}
+	
+	private void evict(Frame f)
+	{
+		if (f.dirty || f.bucket.getPageNumber() < 0)
+			writeBack(f);
+		
+		f.bucket.evict(this.store);
+		f.bucket.frame = null;
+		this.frames[f.index] = null;
+		this.resident--;
+		this.evictions++;
+	}
+	
+	private void writeBack(Frame f)
+	{
+		// Never let an older copy from the flusher land after this one.
+		while (this.inFlight.contains(f.bucket.getPageNumber())) {
+			try {
+				wait();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the flusher", ie);
+			}
+		}
+		
+		for (Map.Entry<Integer, ByteBuffer> page : encode(f.bucket).entrySet())
+			this.store.write(page.getKey(), page.getValue());
+		f.dirty = false;
+		this.writes++;
+	}
+	
+	/**
+	 * Encodes a bucket and the chained buckets in memory, allocating pages for those that have 
+	 * none. Each page holds the number of the next one, so the chain can be read back.
+	 * 
+	 * @param b Bucket to encode.
+	 * @return the encoded pages, by page number.
+	 */
+	private SortedMap<Integer, ByteBuffer> encode(Bucket b)
+	{
+		SortedMap<Integer, ByteBuffer> pages = new TreeMap<Integer, ByteBuffer>();
+		if (b.getPageNumber() < 0)
+			b.setPageNumber(this.store.allocate());
+		
+		// A chained bucket that is not in memory is unchanged since it was written, and so is 
+		// the rest of the chain, which is only read through it.
+		for (Bucket chained = b; chained != null; ) {
+			Bucket next = chained.getNextBucket();
+			if (next != null && next.getPageNumber() < 0)
+				next.setPageNumber(this.store.allocate());
+			
+			ByteBuffer page = ByteBuffer.allocate(this.store.getPageSize());
+			chained.writePage(page, (next == null) ? -1 : next.getPageNumber(), chained != b);
+			page.flip();
+			pages.put(chained.getPageNumber(), page);
+			
+			chained = (next != null && next.isResident()) ? next : null;
+		}
+		return pages;
+	}
+	
+	/**
+	 * The pool's bookkeeping for a bucket in memory.
+	 */
+	static class Frame
+	{
+		Bucket bucket;
+		int index;
+		int pins;
+		boolean dirty;
+		boolean referenced;
+		
+		Frame(Bucket bucket, int index)
+		{
+			this.bucket = bucket;
+			this.index = index;
+		}
+	}
+}
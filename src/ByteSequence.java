@@ -0,0 +1,68 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * .ByteSequence.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A reusable view of a range of single-byte characters in a ByteBuffer. Lets keys be hashed and
+ * inserted straight from a mapped file without creating a String for each one.
+ */
+public class ByteSequence implements CharSequence
+{
+	private ByteBuffer buffer;
+	private int offset;
+	private int length;
+	
+	/**
+	 * Constructs a ByteSequence over buffer[offset..offset+length).
+	 * 
+	 * @param buffer the buffer holding the characters.
+	 * @param offset index of the first character.
+	 * @param length number of characters.
+	 */
+	public ByteSequence(ByteBuffer buffer, int offset, int length)
+	{
+		reset(buffer, offset, length);
+	}
+	
+	/**
+	 * Points the sequence at a different range.
+	 * 
+	 * @param buffer the buffer holding the characters.
+	 * @param offset index of the first character.
+	 * @param length number of characters.
+	 */
+	public void reset(ByteBuffer buffer, int offset, int length)
+	{
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	public int length()
+	{
+		return this.length;
+	}
+	
+	public char charAt(int index)
+	{
+		return (char) (this.buffer.get(this.offset + index) & 0xff);
+	}
+	
+	public CharSequence subSequence(int start, int end)
+	{
+		return new ByteSequence(this.buffer, this.offset + start, end - start);
+	}
+	
+	public String toString()
+	{
+		byte[] bytes = new byte[this.length];
+		for (int i = 0; i < this.length; i++)
+			bytes[i] = this.buffer.get(this.offset + i);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
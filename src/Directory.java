@@ -1,166 +1,1400 @@
-/**
- * .Directory.java
- *
- * @author Chris Nguyen
- */
-
-/**
- * Represents the Directory table in the Extendible Hashing method.
- */
-public class Directory
-{
-	public static int MAX_DEPTH = 30;
-	
-	private Bucket[] directory;
-	private int depth;			/* max depth is 30 since depth=31 overflows an int data type */
-	
-	private StringHasher h;
-	
-	/**
-	 * Constructs a Directory for Extendible Hashing with a starting length of 1 and depth of 0.
-	 */
-	public Directory(int bucketSizeInBytes)
-	{
-		this.directory = new Bucket[] {new Bucket(bucketSizeInBytes)};
-		this.depth = 0;
-		this.h = StringHasher.getInstance();
-	}
-	
-	public int getDepth()
-	{
-		return this.depth;
-	}
-	
-	public int getLength()
-	{
-		return this.directory.length;
-	}
-	
-	/**
-	 * Inserts a value into a Directory entry's bucket. 
-	 * 
-	 * @param value Value to insert.
-	 */
-	public void insert(String value)
-	{
-		int pseudokey = this.h.hash(value);
-		int key = BitUtility.getLeftMostBits(pseudokey, this.depth);
-		Bucket b = this.directory[key];
-		
-		if (as1.DEBUG)
-			System.out.println("Inserting " + value + " to directory["+key+"] (Bucket: "+b.id+")");
-		
-		boolean inserted = b.insert(value);
-		
-		while (! inserted) {			
-			if (this.depth > b.getDepth()) {
-				if (as1.DEBUG)
-					System.out.println("Bucket " + b.id + " is full!");
-				
-				Bucket b2 = new Bucket(b);
-				b2.incDepth1();
-				b.incDepth0();
-				
-				b.filter(b2, b.getBitPattern());
-				
-				// TODO: This could be optimized a bit if they're adjacent.
-				// Could just loop left and right while directory[i] == b, starting at i = key.
-				for (int i = 0; i < this.directory.length; i++) {
-					if (directory[i] == b) {
-						int dirIdxTruncatedToBucketDepth = i >>> (this.depth - b2.getDepth());
-						if (dirIdxTruncatedToBucketDepth != b.getBitPattern())
-							directory[i] = b2;
-					}
-				}
-			}
-			else if (this.depth == b.getDepth()) {
-				expand(key);
-			}
-			else {
-				ErrorLogger.logIssue("Directory.insertAt(String)", "Global depth < Local Depth");
-				System.exit(-1);
-			}
-			
-			key = BitUtility.getLeftMostBits(pseudokey, this.depth);
-			b = this.directory[key];
-			inserted = b.insert(value);
-		}
-	}
-	
-	/**
-	 * Searches for value and counts the number of probes along the way.
-	 * 
-	 * @param value The string to search for
-	 * @return the number of probes to find value
-	 */
-	public int countProbes(String value)
-	{
-		int pseudokey = this.h.hash(value);
-		int key = BitUtility.getLeftMostBits(pseudokey, this.depth);
-		Bucket b = this.directory[key];
-		return b.countProbes(value);
-	}
-	
-	/**
-	 * Doubles the size of the directory, increments depth, and updates the references to buckets.
-	 * 
-	 * @param fullBucketIndex The index of the directory entry referencing a full bucket.
-	 */
-	private void expand(int fullBucketIndex)
-	{		
-		if (this.depth == Directory.MAX_DEPTH) {
-			if (as1.DEBUG)
-				System.out.println("Directory has reached max depth!. Creating chained bucket now.");
-			
-			this.directory[fullBucketIndex].chainBucket();
-			return;
-			/*
-			ErrorLogger.logError("Directory.expand(int)", 
-					"Directory has reached maximum size.\nThis is most likely because too many " + 
-					"words are being hashed to the same bitpattern/pseudokey. " + 
-					"Try a more distributed hash function.");
-			System.exit(-1);
-			*/
-		}
-		
-		if (as1.DEBUG)
-			System.out.println("Expanding Directory: ");
-		
-		Bucket[] newDirectory = new Bucket[this.directory.length * 2];
-		
-		for (int i = 0; i < this.directory.length; i++) {
-			if (i != fullBucketIndex) {
-				newDirectory[i*2] = this.directory[i];
-				newDirectory[i*2 + 1] = this.directory[i];
-			}
-			else {
-				Bucket b2 = new Bucket(this.directory[fullBucketIndex]);
-				b2.incDepth1();
-				this.directory[fullBucketIndex].incDepth0();
-				this.directory[fullBucketIndex].filter(b2, fullBucketIndex*2);
-				
-				newDirectory[fullBucketIndex*2] = this.directory[fullBucketIndex];
-				newDirectory[fullBucketIndex*2 + 1] = b2;
-			}
-		}
-		
-		this.directory = newDirectory;
-		this.depth++;
-		
-		if (as1.DEBUG)
-			print();
-	}
-	
-	public void print()
-	{
-		System.out.println("Directory Depth: " + this.depth);
-		int len = (int) Math.pow(2, this.depth);
-		for (int i = 0; i < len; i++) {
-			String binaryI = String.format("%30s", Integer.toBinaryString(i)).replace(' ', '0');
-			System.out.print(binaryI);
-			directory[i].printBucket();
-			System.out.println();
-		}
-		System.out.println();
-	}
-}
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * .Directory.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Represents the Directory table in the Extendible Hashing method.
+ */
+public class Directory implements HashIndex
+{
+	public static int MAX_DEPTH = 30;
+	
+	private Bucket[] directory;
+	private int depth;			/* max depth is 30 since depth=31 overflows an int data type */
+	private int maxDepth;
+	
+	private Hasher<String> h;
+	
+	private BufferPool pool;	/* null if every bucket stays in memory */
+	
+	private DirectoryMetrics metrics;
+	
+	// Smallest number of pseudokeys a bucket's filter is sized for.
+	private static final int MIN_BLOOM_KEYS = 8;
+	
+	private double bloomBitsPerKey;	/* 0 if buckets have no filters */
+	private int bloomHashes;
+	
+	private long cacheBudget;	/* 0 if the directory is not a cache */
+	private long bytesUsed;		/* bucket contents and directory references */
+	
+	// Epochs of the open snapshots. Buckets of the newest epoch or older are copied before they 
+	// are changed, and so is the directory table if a snapshot holds it.
+	private TreeSet<Long> snapshotEpochs = new TreeSet<Long>();
+	private volatile long frozenEpoch = -1;	/* -1 if no snapshot is open */
+	private boolean directoryShared;
+	
+	/**
+	 * Constructs a Directory for Extendible Hashing with a starting length of 1 and depth of 0.
+	 */
+	public Directory(int bucketSizeInBytes)
+	{
+		this(bucketSizeInBytes, StringHasher.getInstance());
+	}
+	
+	/**
+	 * Constructs a Directory for Extendible Hashing with a starting length of 1 and depth of 0
+	 * that maps values to pseudokeys with the given hasher.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param h the hasher used to compute pseudokeys.
+	 */
+	public Directory(int bucketSizeInBytes, Hasher<String> h)
+	{
+		this(bucketSizeInBytes, h, Directory.MAX_DEPTH);
+	}
+	
+	/**
+	 * Constructs a Directory whose buckets are kept in a bounded BufferPool. Buckets that do not 
+	 * fit in the pool's frames are written to its store and read back when they are used.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param pool the pool holding bucket contents in memory.
+	 */
+	public Directory(int bucketSizeInBytes, BufferPool pool)
+	{
+		this(bucketSizeInBytes, StringHasher.getInstance(), Directory.MAX_DEPTH);
+		this.pool = pool;
+	}
+	
+	/**
+	 * Reopens a Directory whose buckets were written to a BufferPool's store, such as one synced 
+	 * with FLUSHED or FSYNCED durability before its process stopped.
+	 * 
+	 * Every page holds its bucket's depth and bit pattern, so the table is rebuilt from the pages 
+	 * alone, each entry referencing the deepest bucket covering it. A bucket whose range was 
+	 * partly taken over by a split that reached the disk is the old page of that split, and is 
+	 * split again to fit around it. Entries no page covers get empty buckets, and pages no bucket 
+	 * uses are freed. Every value synced before the process stopped is found.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket, as the store was created with.
+	 * @param pool the pool over the store, which must have been opened with BucketStore.open.
+	 * @return the reopened Directory.
+	 */
+	public static Directory open(int bucketSizeInBytes, BufferPool pool)
+	{
+		BucketStore store = pool.getStore();
+		Hasher<String> h = StringHasher.getInstance();
+		pool.setRecoverable();
+		
+		// Pages of the wrong size were allocated but never written.
+		int pageCount = store.getPageCount();
+		int[] nextPages = new int[pageCount];
+		boolean[] chained = new boolean[pageCount];
+		List<Bucket> heads = new ArrayList<Bucket>();
+		int depth = 0;
+		for (int page = 0; page < pageCount; page++) {
+			ByteBuffer in = store.getPage(page);
+			nextPages[page] = -1;
+			if (Bucket.getPageCapacity(in) != bucketSizeInBytes)
+				continue;
+			
+			nextPages[page] = Bucket.getNextPage(in);
+			chained[page] = Bucket.isChainedPage(in);
+			if (! chained[page]) {
+				Bucket b = Bucket.fromPage(in, h, store, page);
+				heads.add(b);
+				depth = Math.max(depth, b.getDepth());
+			}
+		}
+		
+		// Depths only grow, so the deepest bucket covering an entry is the newest.
+		heads.sort(new Comparator<Bucket>() {
+			public int compare(Bucket a, Bucket b)
+			{
+				return b.getDepth() - a.getDepth();
+			}
+		});
+		
+		Bucket[] table = new Bucket[1 << depth];
+		boolean[] used = new boolean[pageCount];
+		for (Bucket head : heads)
+			place(table, depth, head, pool, used);
+		
+		for (int i = 0; i < table.length; ) {
+			if (table[i] != null) {
+				i++;
+				continue;
+			}
+			
+			// Fill the largest aligned block of empty entries starting at i with one bucket.
+			int localDepth = depth;
+			while (localDepth > 0 && i % (1 << (depth - localDepth + 1)) == 0 
+					&& isEmpty(table, i, 1 << (depth - localDepth + 1)))
+				localDepth--;
+			Bucket empty = new Bucket(bucketSizeInBytes, h);
+			if (localDepth > 0)
+				empty.rebase(localDepth, i >>> (depth - localDepth), h);
+			Arrays.fill(table, i, i + (1 << (depth - localDepth)), empty);
+			i += 1 << (depth - localDepth);
+		}
+		
+		// Chained pages are in use if the head they hang from is. A chained bucket created after 
+		// the last sync may not have reached the file, so the chain is cut before it.
+		for (int i = 0; i < table.length; i += 1 << (depth - table[i].getDepth())) {
+			Bucket head = table[i];
+			Bucket b = head;
+			int page = head.getPageNumber();
+			while (page >= 0) {
+				used[page] = true;
+				int next = nextPages[page];
+				if (next < 0)
+					break;
+				
+				if (next >= pageCount || ! chained[next] || used[next]) {
+					pool.pin(head);
+					b.cutChain();
+					pool.unpin(head, true);
+					break;
+				}
+				b = b.getNextBucket();
+				page = next;
+			}
+		}
+		for (int page = 0; page < pageCount; page++) {
+			if (! used[page])
+				store.free(page);
+		}
+		
+		Directory d = new Directory(table, depth, h);
+		d.pool = pool;
+		return d;
+	}
+	
+	/**
+	 * Makes the entries of a reopened bucket's range reference it, unless deeper buckets already 
+	 * do. A bucket whose range is partly taken is split until each half is either free or taken.
+	 * 
+	 * @param table the directory table being rebuilt.
+	 * @param depth the global depth of table.
+	 * @param b the bucket to place.
+	 * @param pool the pool holding bucket contents in memory.
+	 * @param used receives the pages that must be kept.
+	 */
+	private static void place(Bucket[] table, int depth, Bucket b, BufferPool pool, boolean[] used)
+	{
+		int aliases = 1 << (depth - b.getDepth());
+		int first = (b.getDepth() == 0) ? 0 : b.getBitPattern() << (depth - b.getDepth());
+		int taken = 0;
+		for (int i = first; i < first + aliases; i++) {
+			if (table[i] != null)
+				taken++;
+		}
+		
+		if (taken == 0) {
+			Arrays.fill(table, first, first + aliases, b);
+			return;
+		}
+		if (taken == aliases) {
+			if (b.frame != null)
+				pool.discard(b);
+			return;
+		}
+		
+		// The old page is kept until the halves are synced, since it still holds their values.
+		if (b.getPageNumber() >= 0)
+			used[b.getPageNumber()] = true;
+		
+		Bucket b2 = new Bucket(b);
+		pool.pin(b);
+		pool.pin(b2);
+		b2.incDepth1();
+		b.incDepth0();
+		pool.relocate(b);
+		b.filter(b2, b.getBitPattern());
+		pool.unpin(b, true);
+		pool.unpin(b2, true);
+		
+		place(table, depth, b, pool, used);
+		place(table, depth, b2, pool, used);
+	}
+	
+	private static boolean isEmpty(Bucket[] table, int from, int length)
+	{
+		for (int i = from; i < from + length; i++) {
+			if (table[i] != null)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Constructs a Directory whose depth may not grow past maxDepth. Once maxDepth is reached, 
+	 * full buckets are chained instead.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param h the hasher used to compute pseudokeys.
+	 * @param maxDepth the maximum depth of the directory.
+	 */
+	Directory(int bucketSizeInBytes, Hasher<String> h, int maxDepth)
+	{
+		this.directory = new Bucket[] {new Bucket(bucketSizeInBytes, h)};
+		this.depth = 0;
+		this.maxDepth = maxDepth;
+		this.h = h;
+		this.metrics = new DirectoryMetrics(this);
+	}
+	
+	/**
+	 * Constructs a Directory from an already populated directory table.
+	 * 
+	 * @param directory the directory table. Must have a length of 2^depth.
+	 * @param depth the global depth of the directory.
+	 * @param h the hasher used to compute pseudokeys.
+	 */
+	Directory(Bucket[] directory, int depth, Hasher<String> h)
+	{
+		this.directory = directory;
+		this.depth = depth;
+		this.maxDepth = Directory.MAX_DEPTH;
+		this.h = h;
+		this.metrics = new DirectoryMetrics(this);
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	public int getLength()
+	{
+		return this.directory.length;
+	}
+	
+	public long getSplitCount()
+	{
+		return this.metrics.getSplitCount();
+	}
+	
+	public long getExpandCount()
+	{
+		return this.metrics.getExpandCount();
+	}
+	
+	/**
+	 * Gets the counters and gauges of the directory.
+	 * 
+	 * @return the metrics of the directory.
+	 */
+	public DirectoryMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+	
+	public int getBucketCount()
+	{
+		return this.metrics.getBucketCount();
+	}
+	
+	public long getSizeInBytes()
+	{
+		return this.metrics.getBytesResident();
+	}
+	
+	public String getStats()
+	{
+		return this.metrics.snapshot().toString();
+	}
+	
+	/**
+	 * Gets the hasher used to compute pseudokeys.
+	 * 
+	 * @return the hasher of the directory.
+	 */
+	Hasher<String> getHasher()
+	{
+		return this.h;
+	}
+	
+	/**
+	 * Gets the bucket referenced by a directory entry.
+	 * 
+	 * @param index Index of the directory entry.
+	 * @return the bucket at index.
+	 */
+	Bucket getBucket(int index)
+	{
+		return this.directory[index];
+	}
+	
+	/**
+	 * Gets the pool holding bucket contents in memory.
+	 * 
+	 * @return the pool of the directory, or null if every bucket stays in memory.
+	 */
+	BufferPool getPool()
+	{
+		return this.pool;
+	}
+	
+	/**
+	 * Keeps a Bloom filter of the pseudokeys in every bucket, so most lookups for values that are 
+	 * not in the directory are answered without reading a bucket. Filters are rebuilt from the 
+	 * stored words whenever a bucket is split or outgrows its filter. Filters are not saved by 
+	 * DirectoryFile, so this must be called again after a snapshot is loaded.
+	 * 
+	 * @param falsePositiveRate the fraction of missing values that still read their bucket, or 1 
+	 * to remove every filter.
+	 */
+	public void setFalsePositiveRate(double falsePositiveRate)
+	{
+		if (! (falsePositiveRate > 0 && falsePositiveRate <= 1))
+			throw new IllegalArgumentException("False positive rate must be in (0, 1]: " + falsePositiveRate);
+		
+		if (falsePositiveRate == 1) {
+			this.bloomBitsPerKey = 0;
+			this.bloomHashes = 0;
+		}
+		else {
+			this.bloomBitsPerKey = BloomFilter.getBitsPerKey(falsePositiveRate);
+			this.bloomHashes = BloomFilter.getNumHashes(this.bloomBitsPerKey);
+		}
+		
+		for (int i = 0; i < this.directory.length; i += 1 << (this.depth - this.directory[i].getDepth())) {
+			Bucket b = this.directory[i];
+			pin(b);
+			rebuildBloomFilter(b);
+			unpin(b, false);
+		}
+	}
+	
+	/**
+	 * Turns the directory into a cache whose buckets and directory table take at most 
+	 * budgetInBytes. Once growing would exceed the budget, an insert into a full bucket evicts 
+	 * words from that bucket instead of splitting it. Victims are chosen by CLOCK over reference 
+	 * bits kept in the bucket header, which contains and getAll set on every hit. Inserting a 
+	 * value that is already cached only sets its reference bit. Bloom filters are not counted 
+	 * against the budget.
+	 * 
+	 * @param budgetInBytes the most memory buckets and the directory table may take.
+	 */
+	public void setCacheBudget(long budgetInBytes)
+	{
+		if (this.pool != null)
+			throw new IllegalStateException("A cache keeps every bucket in memory, so it cannot use a BufferPool");
+		if (this.frozenEpoch >= 0)
+			throw new IllegalStateException("A directory cannot become a cache while a snapshot is open");
+		if (budgetInBytes <= 0)
+			throw new IllegalArgumentException("Cache budget must be positive: " + budgetInBytes);
+		
+		this.cacheBudget = budgetInBytes;
+		this.bytesUsed = (long) this.directory.length * Integer.BYTES;
+		for (int i = 0; i < this.directory.length; i += 1 << (this.depth - this.directory[i].getDepth())) {
+			for (Bucket b = this.directory[i]; b != null; b = b.getNextBucket())
+				this.bytesUsed += (long) b.getCapacity() * Character.BYTES;
+		}
+	}
+	
+	/**
+	 * Gets the memory taken by buckets and the directory table, as counted against the cache 
+	 * budget.
+	 * 
+	 * @return the number of bytes used, or 0 if the directory is not a cache.
+	 */
+	public long getCacheBytesUsed()
+	{
+		return (this.cacheBudget == 0) ? 0 : this.bytesUsed;
+	}
+	
+	/**
+	 * Takes a point-in-time view of the directory. Taking one is cheap: the snapshot holds the 
+	 * current directory table, and from then on the directory copies each bucket the first time 
+	 * it changes it, so writers never block on readers of the snapshot. Old bucket versions are 
+	 * dropped when the snapshot is closed.
+	 * 
+	 * Snapshots are taken by the thread(s) that change the directory, under the same lock, but 
+	 * may then be read and closed by any thread.
+	 * 
+	 * @return the snapshot, which must be closed once it is no longer read.
+	 */
+	public DirectorySnapshot snapshot()
+	{
+		if (this.pool != null)
+			throw new IllegalStateException("Snapshots need every bucket in memory, so they cannot use a BufferPool");
+		if (this.cacheBudget > 0)
+			throw new IllegalStateException("Lookups change the buckets of a cache, so it cannot be snapshotted");
+		
+		long epoch = Bucket.nextEpoch();
+		synchronized (this.snapshotEpochs) {
+			this.snapshotEpochs.add(epoch);
+			this.frozenEpoch = epoch;
+		}
+		this.directoryShared = true;
+		return new DirectorySnapshot(this, this.directory, this.depth, epoch);
+	}
+	
+	/**
+	 * Stops copying buckets for a snapshot that has been closed.
+	 * 
+	 * @param epoch the epoch of the snapshot.
+	 */
+	void closeSnapshot(long epoch)
+	{
+		synchronized (this.snapshotEpochs) {
+			this.snapshotEpochs.remove(epoch);
+			this.frozenEpoch = this.snapshotEpochs.isEmpty() ? -1 : this.snapshotEpochs.last();
+		}
+	}
+	
+	/**
+	 * Inserts a value into a Directory entry's bucket. 
+	 * 
+	 * @param value Value to insert.
+	 */
+	public void insert(String value)
+	{
+		insert(value, this.h.hash(value));
+	}
+	
+	/**
+	 * Inserts a value into a Directory entry's bucket, and waits until the change is as durable 
+	 * as requested.
+	 * 
+	 * @param value Value to insert.
+	 * @param durability how far the change must reach before returning.
+	 */
+	public void insert(String value, Durability durability)
+	{
+		insert(value);
+		sync(durability);
+	}
+	
+	/**
+	 * Inserts a value unless it is already in the directory. The value is looked for by the same 
+	 * scan of its bucket that finds where it goes, so reloading keys that are already present 
+	 * costs one probe each, and never stores duplicates or splits buckets because of them.
+	 * 
+	 * @param value Value to insert.
+	 * @return true if value was inserted, false if it was already in the directory.
+	 */
+	public boolean insertIfAbsent(String value)
+	{
+		return insert(value, this.h.hash(value), true);
+	}
+	
+	/**
+	 * Inserts a value whose pseudokey has already been computed by this directory's hasher.
+	 * 
+	 * @param value Value to insert.
+	 * @param pseudokey The hash of value.
+	 */
+	void insert(CharSequence value, int pseudokey)
+	{
+		insert(value, pseudokey, false);
+	}
+	
+	/**
+	 * Inserts a value whose pseudokey has already been computed by this directory's hasher, 
+	 * unless it is already in the directory.
+	 * 
+	 * @param value Value to insert.
+	 * @param pseudokey The hash of value.
+	 * @return true if value was inserted, false if it was already in the directory.
+	 */
+	boolean insertIfAbsent(String value, int pseudokey)
+	{
+		return insert(value, pseudokey, true);
+	}
+	
+	/**
+	 * Inserts a value whose pseudokey has already been computed by this directory's hasher.
+	 * 
+	 * @param value Value to insert.
+	 * @param pseudokey The hash of value.
+	 * @param ifAbsent true to leave the directory unchanged if value is already in it.
+	 * @return true if the directory changed, false otherwise.
+	 */
+	private boolean insert(CharSequence value, int pseudokey, boolean ifAbsent)
+	{
+		int key = BitUtility.getLeftMostBits(pseudokey, this.depth);
+		Bucket b = writable(key);
+		
+		pin(b);
+		if (this.cacheBudget > 0 && b.touch(value)) {
+			unpin(b, true);
+			return false;
+		}
+		
+		// A value the filter has never seen cannot be present, so skip comparing it to every word.
+		boolean inserted;
+		if (ifAbsent && mightContain(b, pseudokey)) {
+			int status = b.insertIfAbsent(value);
+			if (status == Bucket.PRESENT) {
+				unpin(b, false);
+				return false;
+			}
+			inserted = (status == Bucket.INSERTED);
+		}
+		else {
+			inserted = b.insert(value);
+		}
+		
+		// Splitting does not add values, so from here on value is known to be absent.
+		while (! inserted) {			
+			if (this.cacheBudget > 0 && ! canGrow(b)) {
+				if (! b.evictOne())
+					throw new IllegalArgumentException("Value does not fit in an empty bucket: " + value);
+				this.metrics.evicted();
+			}
+			else if (this.depth > b.getDepth()) {
+				this.metrics.split(1);
+				DirectoryEvents.Split event = new DirectoryEvents.Split();
+				event.begin();
+				
+				Bucket b2 = new Bucket(b);
+				pin(b2);
+				b2.incDepth1();
+				b.incDepth0();
+				relocate(b);
+				this.bytesUsed += (long) b2.getCapacity() * Character.BYTES;
+				unshareDirectory();
+				
+				b.filter(b2, b.getBitPattern());
+				rebuildBloomFilter(b);
+				rebuildBloomFilter(b2);
+				int moved = b2.getCapacity() - b2.getRemainingSize();
+				unpin(b2, true);
+				
+				// TODO: This could be optimized a bit if they're adjacent.
+				// Could just loop left and right while directory[i] == b, starting at i = key.
+				for (int i = 0; i < this.directory.length; i++) {
+					if (directory[i] == b) {
+						int dirIdxTruncatedToBucketDepth = i >>> (this.depth - b2.getDepth());
+						if (dirIdxTruncatedToBucketDepth != b.getBitPattern())
+							directory[i] = b2;
+					}
+				}
+				
+				if (event.shouldCommit()) {
+					event.localDepth = b2.getDepth();
+					event.bytesMoved = (long) moved * Character.BYTES;
+					event.commit();
+				}
+			}
+			else if (this.depth == b.getDepth()) {
+				expand(key);
+			}
+			else {
+				ErrorLogger.logIssue("Directory.insertAt(String)", "Global depth < Local Depth");
+				System.exit(-1);
+			}
+			
+			unpin(b, true);
+			key = BitUtility.getLeftMostBits(pseudokey, this.depth);
+			b = writable(key);
+			pin(b);
+			inserted = b.insert(value);
+		}
+		addToBloomFilter(b, pseudokey);
+		unpin(b, true);
+		
+		this.metrics.inserted(1);
+		return true;
+	}
+	
+	/**
+	 * Removes a value from the directory. Buckets are never merged, so the directory does not 
+	 * shrink, and the removed value stays in its bucket's filter until the bucket is next split.
+	 * 
+	 * @param value Value to remove.
+	 * @return true if value was in the directory, false otherwise.
+	 */
+	public boolean remove(String value)
+	{
+		int pseudokey = this.h.hash(value);
+		int key = BitUtility.getLeftMostBits(pseudokey, this.depth);
+		if (! mightContain(this.directory[key], pseudokey))
+			return false;
+		
+		Bucket b = writable(key);
+		pin(b);
+		boolean removed = b.remove(value);
+		unpin(b, removed);
+		
+		if (removed)
+			this.metrics.removed();
+		return removed;
+	}
+	
+	/**
+	 * Takes every word of the bucket at a directory entry out of the directory. The bucket is 
+	 * replaced by an empty one with no capacity, so its memory can be reclaimed. Nothing hashing 
+	 * to it may be inserted afterwards.
+	 * 
+	 * @param key Index of a directory entry referencing the bucket.
+	 * @return the words of the bucket and its chain.
+	 */
+	List<String> drain(int key)
+	{
+		Bucket b = this.directory[key];
+		List<String> words = new ArrayList<String>();
+		pin(b);
+		b.getWords(words);
+		unpin(b, false);
+		
+		Bucket empty = new Bucket(0, this.h);
+		empty.rebase(b.getDepth(), b.getBitPattern(), this.h);
+		
+		unshareDirectory();
+		int aliases = 1 << (this.depth - b.getDepth());
+		int first = key & ~(aliases - 1);
+		Arrays.fill(this.directory, first, first + aliases, empty);
+		
+		for (Bucket chained = b; chained != null; chained = chained.getNextBucket())
+			this.bytesUsed -= (long) chained.getCapacity() * Character.BYTES;
+		if (this.pool != null)
+			this.pool.discard(b);
+		return words;
+	}
+	
+	/**
+	 * Inserts a batch of values. Values are grouped by the bucket they hash to, and every bucket 
+	 * that cannot hold its group is split straight to the local depths its values need, so each 
+	 * bucket is redistributed once and the directory is doubled at most once per batch.
+	 * 
+	 * @param values Values to insert.
+	 */
+	public void insertAll(List<String> values)
+	{
+		int[] pseudokeys = new int[values.size()];
+		for (int i = 0; i < pseudokeys.length; i++)
+			pseudokeys[i] = this.h.hash(values.get(i));
+		insertAll(values, pseudokeys);
+	}
+	
+	/**
+	 * Inserts a batch of values whose pseudokeys have already been computed by this directory's 
+	 * hasher.
+	 * 
+	 * @param values Values to insert.
+	 * @param pseudokeys The hash of each value, in the order of values.
+	 */
+	void insertAll(List<String> values, final int[] pseudokeys)
+	{
+		// Batches split without looking at the budget, so caches insert one value at a time.
+		if (this.cacheBudget > 0) {
+			for (int i = 0; i < pseudokeys.length; i++)
+				insert(values.get(i), pseudokeys[i]);
+			return;
+		}
+		
+		final String[] keys = values.toArray(new String[values.size()]);
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			order[i] = i;
+		
+		// Every bucket covers a contiguous range of pseudokeys, so sorting groups values by bucket.
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b)
+			{
+				return Integer.compareUnsigned(pseudokeys[a], pseudokeys[b]);
+			}
+		});
+		
+		List<Bucket> leaves = new ArrayList<Bucket>();
+		int newDepth = this.depth;
+		
+		int from = 0;
+		while (from < order.length) {
+			int key = BitUtility.getLeftMostBits(pseudokeys[order[from]], this.depth);
+			Bucket b = this.directory[key];
+			int to = from + 1;
+			while (to < order.length && 
+					this.directory[BitUtility.getLeftMostBits(pseudokeys[order[to]], this.depth)] == b)
+				to++;
+			
+			int needed = 0;
+			for (int i = from; i < to; i++)
+				needed += keys[order[i]].length() + 1;
+			
+			pin(b);
+			if (needed <= b.getRemainingSize() || b.isChained() || b.getDepth() == this.maxDepth) {
+				// Nothing to split. Anything that still does not fit is chained by insert().
+				b = writable(key);
+				for (int i = from; i < to; i++) {
+					if (b.insert(keys[order[i]])) {
+						this.metrics.inserted(1);
+						addToBloomFilter(b, pseudokeys[order[i]]);
+					}
+					else {
+						insert(keys[order[i]], pseudokeys[order[i]]);
+					}
+				}
+				unpin(b, true);
+			}
+			else {
+				int before = leaves.size();
+				newDepth = Math.max(newDepth, split(b, keys, pseudokeys, order, from, to, leaves));
+				this.metrics.inserted(to - from);
+				this.metrics.split(leaves.size() - before - 1);
+				
+				// Every value in b was copied to a leaf, so b is no longer needed.
+				unpin(b, false);
+				if (this.pool != null)
+					this.pool.discard(b);
+			}
+			
+			from = to;
+		}
+		
+		if (leaves.isEmpty())
+			return;
+		
+		// Double the directory once to the deepest depth needed, then point entries at new buckets.
+		if (newDepth > this.depth) {
+			this.metrics.expanded();
+			DirectoryEvents.Expand event = new DirectoryEvents.Expand();
+			event.begin();
+			
+			Bucket[] newDirectory = new Bucket[1 << newDepth];
+			int aliasBits = newDepth - this.depth;
+			for (int i = 0; i < newDirectory.length; i++)
+				newDirectory[i] = this.directory[i >>> aliasBits];
+			
+			if (event.shouldCommit()) {
+				event.oldLength = this.directory.length;
+				event.newLength = newDirectory.length;
+				event.bytesCopied = (long) newDirectory.length * Integer.BYTES;
+				event.commit();
+			}
+			
+			this.directory = newDirectory;
+			this.directoryShared = false;
+			this.depth = newDepth;
+		}
+		
+		unshareDirectory();
+		for (Bucket leaf : leaves) {
+			int aliasBits = this.depth - leaf.getDepth();
+			int start = leaf.getBitPattern() << aliasBits;
+			for (int i = 0; i < (1 << aliasBits); i++)
+				this.directory[start + i] = leaf;
+		}
+	}
+	
+	/**
+	 * Inserts a batch of values, and waits until the changes are as durable as requested.
+	 * 
+	 * @param values Values to insert.
+	 * @param durability how far the changes must reach before returning.
+	 */
+	public void insertAll(List<String> values, Durability durability)
+	{
+		insertAll(values);
+		sync(durability);
+	}
+	
+	/**
+	 * Waits until every change made so far is as durable as requested.
+	 * 
+	 * @param durability how far the changes must reach.
+	 */
+	public void sync(Durability durability)
+	{
+		if (durability == Durability.NONE)
+			return;
+		if (this.pool == null)
+			throw new IllegalStateException("Directory has no BufferPool to write buckets to");
+		
+		this.pool.sync(durability);
+	}
+	
+	/**
+	 * Splits a bucket into as many buckets as it takes to hold its words and a group of new 
+	 * values, without touching the directory.
+	 * 
+	 * @param b The bucket to split.
+	 * @param keys Values being inserted.
+	 * @param pseudokeys Pseudokeys of keys.
+	 * @param order Positions in keys sorted by pseudokey.
+	 * @param from First position in order that hashes to b, inclusive.
+	 * @param to Last position in order that hashes to b, exclusive.
+	 * @param leaves Receives the buckets replacing b.
+	 * @return the deepest local depth of the buckets replacing b.
+	 */
+	private int split(Bucket b, String[] keys, int[] pseudokeys, Integer[] order, int from, int to, 
+			List<Bucket> leaves)
+	{
+		List<String> words = new ArrayList<String>();
+		b.getWords(words);
+		int existing = words.size();
+		for (int i = from; i < to; i++)
+			words.add(keys[order[i]]);
+		
+		final String[] values = words.toArray(new String[words.size()]);
+		final int[] hashes = new int[values.length];
+		Integer[] sorted = new Integer[values.length];
+		for (int i = 0; i < values.length; i++) {
+			hashes[i] = (i < existing) ? this.h.hash(values[i]) : pseudokeys[order[from + i - existing]];
+			sorted[i] = i;
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			public int compare(Integer x, Integer y)
+			{
+				return Integer.compareUnsigned(hashes[x], hashes[y]);
+			}
+		});
+		
+		int[] sizes = new int[values.length + 1];
+		for (int i = 0; i < values.length; i++)
+			sizes[i+1] = sizes[i] + values[sorted[i]].length() + 1;
+		
+		int bitPattern = (b.getDepth() == 0) ? 0 : b.getBitPattern();
+		return plan(b, values, hashes, sorted, sizes, 0, values.length, b.getDepth(), bitPattern, leaves);
+	}
+	
+	/**
+	 * Recursively halves a range of values sharing the same depth left most bits until every 
+	 * half fits in a bucket, then fills one bucket per half.
+	 * 
+	 * @return the deepest local depth of the buckets created.
+	 */
+	private int plan(Bucket template, String[] values, int[] hashes, Integer[] sorted, int[] sizes, 
+			int from, int to, int localDepth, int bitPattern, List<Bucket> leaves)
+	{
+		if (sizes[to] - sizes[from] > template.getCapacity() && localDepth < this.maxDepth) {
+			// Values are sorted by pseudokey, so the ones with a 1 in the next bit come last.
+			int mid = from;
+			int zeroPattern = BitUtility.append0(bitPattern);
+			while (mid < to && BitUtility.getLeftMostBits(hashes[sorted[mid]], localDepth+1) == zeroPattern)
+				mid++;
+			
+			int left = plan(template, values, hashes, sorted, sizes, from, mid, localDepth+1, 
+					zeroPattern, leaves);
+			int right = plan(template, values, hashes, sorted, sizes, mid, to, localDepth+1, 
+					BitUtility.append1(bitPattern), leaves);
+			return Math.max(left, right);
+		}
+		
+		Bucket leaf = new Bucket(template);
+		pin(leaf);
+		leaf.rebase(localDepth, bitPattern, this.h);
+		for (int i = from; i < to; i++) {
+			// Only possible at max depth, where overflowing values are chained.
+			if (! leaf.insert(values[sorted[i]])) {
+				this.metrics.chained();
+				leaf.chainBucket();
+				leaf.insert(values[sorted[i]]);
+			}
+		}
+		
+		BloomFilter bloom = newBloomFilter(to - from);
+		if (bloom != null) {
+			for (int i = from; i < to; i++)
+				bloom.add(hashes[sorted[i]]);
+		}
+		leaf.setBloomFilter(bloom);
+		unpin(leaf, true);
+		leaves.add(leaf);
+		return localDepth;
+	}
+	
+	/**
+	 * Searches for value.
+	 * 
+	 * @param value The string to search for
+	 * @return true if value is in the directory, false otherwise.
+	 */
+	public boolean contains(String value)
+	{
+		return contains(value, this.h.hash(value));
+	}
+	
+	/**
+	 * Searches for a value whose pseudokey has already been computed by this directory's hasher.
+	 * 
+	 * @param value The string to search for
+	 * @param pseudokey The hash of value.
+	 * @return true if value is in the directory, false otherwise.
+	 */
+	boolean contains(String value, int pseudokey)
+	{
+		int key = BitUtility.getLeftMostBits(pseudokey, this.depth);
+		Bucket b = this.directory[key];
+		this.metrics.lookedUp(1);
+		if (! mightContain(b, pseudokey)) {
+			this.metrics.hitOrMiss(false);
+			return false;
+		}
+		
+		DirectoryEvents.SlowLookup event = new DirectoryEvents.SlowLookup();
+		event.begin();
+		boolean resident = b.isResident();
+		
+		pin(b);
+		boolean found = (this.cacheBudget > 0) ? b.touch(value) : b.search(value) >= 0;
+		unpin(b, this.cacheBudget > 0);
+		this.metrics.hitOrMiss(found);
+		
+		if (event.shouldCommit()) {
+			event.keyLength = value.length();
+			event.found = found;
+			event.resident = resident;
+			event.commit();
+		}
+		return found;
+	}
+	
+	/**
+	 * Searches for every value in a batch. Values are grouped by the bucket they hash to, so each 
+	 * bucket is scanned once for all of its values.
+	 * 
+	 * @param values The strings to search for.
+	 * @return whether each value is in the directory, in the order of values.
+	 */
+	public boolean[] containsAll(List<String> values)
+	{
+		int[] pseudokeys = new int[values.size()];
+		for (int i = 0; i < pseudokeys.length; i++)
+			pseudokeys[i] = this.h.hash(values.get(i));
+		return containsAll(values, pseudokeys);
+	}
+	
+	/**
+	 * Searches for every value in a batch whose pseudokeys have already been computed by this 
+	 * directory's hasher.
+	 * 
+	 * @param values The strings to search for.
+	 * @param pseudokeys The hash of each value, in the order of values.
+	 * @return whether each value is in the directory, in the order of values.
+	 */
+	boolean[] containsAll(List<String> values, int[] pseudokeys)
+	{
+		String[] found = getAll(values, pseudokeys);
+		boolean[] result = new boolean[found.length];
+		for (int i = 0; i < found.length; i++)
+			result[i] = found[i] != null;
+		return result;
+	}
+	
+	/**
+	 * Looks up every value in a batch. Values are grouped by the bucket they hash to, so each 
+	 * bucket is scanned once for all of its values.
+	 * 
+	 * @param values The strings to search for.
+	 * @return the stored copy of each value, or null if it is not in the directory, in the order 
+	 * of values.
+	 */
+	public String[] getAll(List<String> values)
+	{
+		int[] pseudokeys = new int[values.size()];
+		for (int i = 0; i < pseudokeys.length; i++)
+			pseudokeys[i] = this.h.hash(values.get(i));
+		return getAll(values, pseudokeys);
+	}
+	
+	/**
+	 * Looks up every value in a batch whose pseudokeys have already been computed by this 
+	 * directory's hasher.
+	 * 
+	 * @param values The strings to search for.
+	 * @param pseudokeys The hash of each value, in the order of values.
+	 * @return the stored copy of each value, or null if it is not in the directory, in the order 
+	 * of values.
+	 */
+	String[] getAll(List<String> values, int[] pseudokeys)
+	{
+		final String[] keys = values.toArray(new String[values.size()]);
+		final int[] slots = new int[keys.length];
+		this.metrics.lookedUp(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			int key = BitUtility.getLeftMostBits(pseudokeys[i], this.depth);
+			
+			// Values ruled out by their bucket's filter get slot -1 and are never searched for.
+			if (! mightContain(this.directory[key], pseudokeys[i])) {
+				slots[i] = -1;
+				continue;
+			}
+			
+			// Use the first entry referencing the bucket so entries sharing a bucket group together.
+			int aliasBits = this.depth - this.directory[key].getDepth();
+			slots[i] = (key >>> aliasBits) << aliasBits;
+		}
+		
+		// Order by bucket, then the same way words are ordered inside a bucket.
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b)
+			{
+				if (slots[a] != slots[b])
+					return (slots[a] < slots[b]) ? -1 : 1;
+				if (keys[a].length() != keys[b].length())
+					return keys[a].length() - keys[b].length();
+				return keys[a].compareTo(keys[b]);
+			}
+		});
+		
+		int[] positions = new int[order.length];
+		for (int i = 0; i < order.length; i++)
+			positions[i] = order[i];
+		
+		// Each run of the same bucket is scanned once.
+		String[] result = new String[keys.length];
+		int from = 0;
+		while (from < positions.length) {
+			int slot = slots[positions[from]];
+			int to = from + 1;
+			while (to < positions.length && slots[positions[to]] == slot)
+				to++;
+			
+			if (slot >= 0) {
+				Bucket b = this.directory[slot];
+				pin(b);
+				b.getAll(keys, positions, from, to, result, this.cacheBudget > 0);
+				unpin(b, this.cacheBudget > 0);
+			}
+			from = to;
+		}
+		
+		// Count hits and misses the way contains does, filtered values being misses.
+		int hits = 0;
+		for (String found : result) {
+			if (found != null)
+				hits++;
+		}
+		this.metrics.hitsAndMisses(hits, result.length - hits);
+		return result;
+	}
+	
+	/**
+	 * Searches for value and counts the number of probes along the way.
+	 * 
+	 * @param value The string to search for
+	 * @return the number of probes to find value
+	 */
+	public int countProbes(String value)
+	{
+		return countProbes(value, this.h.hash(value));
+	}
+	
+	/**
+	 * Searches for a value whose pseudokey has already been computed by this directory's hasher, 
+	 * and counts the number of probes along the way.
+	 * 
+	 * @param value The string to search for
+	 * @param pseudokey The hash of value.
+	 * @return the number of probes to find value
+	 */
+	int countProbes(String value, int pseudokey)
+	{
+		int key = BitUtility.getLeftMostBits(pseudokey, this.depth);
+		Bucket b = this.directory[key];
+		this.metrics.lookedUp(1);
+		if (! mightContain(b, pseudokey)) {
+			this.metrics.probed(-1);
+			return -1;
+		}
+		
+		pin(b);
+		int probes = b.countProbes(value);
+		unpin(b, false);
+		this.metrics.probed(probes);
+		return probes;
+	}
+	
+	/**
+	 * Returns an iterator over every value in the directory. Each bucket is visited once, in 
+	 * directory order.
+	 * 
+	 * @return an iterator over every value.
+	 */
+	public Iterator<String> iterator()
+	{
+		return Spliterators.iterator(spliterator());
+	}
+	
+	/**
+	 * Returns a Spliterator over every value in the directory that splits along bucket boundaries.
+	 * 
+	 * @return a Spliterator over every value.
+	 */
+	public Spliterator<String> spliterator()
+	{
+		return new DirectorySpliterator(this.directory, this.depth, 0, this.directory.length, this.pool);
+	}
+	
+	/**
+	 * Returns a sequential Stream over every value in the directory.
+	 * 
+	 * @return a Stream over every value.
+	 */
+	public Stream<String> stream()
+	{
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel Stream over every value in the directory. The directory must not be 
+	 * modified while the stream is in use.
+	 * 
+	 * @return a parallel Stream over every value.
+	 */
+	public Stream<String> parallelStream()
+	{
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * Doubles the size of the directory, increments depth, and updates the references to buckets.
+	 * 
+	 * @param fullBucketIndex The index of the directory entry referencing a full bucket.
+	 */
+	private void expand(int fullBucketIndex)
+	{		
+		if (this.depth == this.maxDepth) {
+			this.metrics.chained();
+			this.directory[fullBucketIndex].chainBucket();
+			this.bytesUsed += (long) this.directory[fullBucketIndex].getCapacity() * Character.BYTES;
+			return;
+			/*
+			ErrorLogger.logError("Directory.expand(int)", 
+					"Directory has reached maximum size.\nThis is most likely because too many " + 
+					"words are being hashed to the same bitpattern/pseudokey. " + 
+					"Try a more distributed hash function.");
+			System.exit(-1);
+			*/
+		}
+		
+		this.metrics.expanded();
+		this.metrics.split(1);
+		DirectoryEvents.Expand event = new DirectoryEvents.Expand();
+		event.begin();
+		
+		Bucket[] newDirectory = new Bucket[this.directory.length * 2];
+		
+		for (int i = 0; i < this.directory.length; i++) {
+			if (i != fullBucketIndex) {
+				newDirectory[i*2] = this.directory[i];
+				newDirectory[i*2 + 1] = this.directory[i];
+			}
+			else {
+				Bucket b2 = new Bucket(this.directory[fullBucketIndex]);
+				pin(b2);
+				this.bytesUsed += (long) b2.getCapacity() * Character.BYTES;
+				b2.incDepth1();
+				this.directory[fullBucketIndex].incDepth0();
+				relocate(this.directory[fullBucketIndex]);
+				this.directory[fullBucketIndex].filter(b2, fullBucketIndex*2);
+				rebuildBloomFilter(this.directory[fullBucketIndex]);
+				rebuildBloomFilter(b2);
+				unpin(b2, true);
+				
+				newDirectory[fullBucketIndex*2] = this.directory[fullBucketIndex];
+				newDirectory[fullBucketIndex*2 + 1] = b2;
+			}
+		}
+		
+		if (event.shouldCommit()) {
+			event.oldLength = this.directory.length;
+			event.newLength = newDirectory.length;
+			event.bytesCopied = (long) newDirectory.length * Integer.BYTES;
+			event.commit();
+		}
+		
+		this.bytesUsed += (long) this.directory.length * Integer.BYTES;
+		this.directory = newDirectory;
+		this.directoryShared = false;
+		this.depth++;
+	}
+	
+	/**
+	 * Gets the bucket referenced by a directory entry so it can be changed. If an open snapshot 
+	 * can still see the bucket, it is first replaced by a copy in every entry referencing it.
+	 * 
+	 * @param key Index of the directory entry.
+	 * @return the bucket at key, which no snapshot can see.
+	 */
+	private Bucket writable(int key)
+	{
+		Bucket b = this.directory[key];
+		if (b.getEpoch() > this.frozenEpoch)
+			return b;
+		
+		unshareDirectory();
+		Bucket copy = b.copy();
+		int aliases = 1 << (this.depth - b.getDepth());
+		int first = key & ~(aliases - 1);
+		Arrays.fill(this.directory, first, first + aliases, copy);
+		this.metrics.copied();
+		return copy;
+	}
+	
+	/**
+	 * Copies the directory table if a snapshot holds it, so its entries can be changed.
+	 */
+	private void unshareDirectory()
+	{
+		if (this.directoryShared) {
+			this.directory = this.directory.clone();
+			this.directoryShared = false;
+		}
+	}
+	
+	/**
+	 * Checks if a full bucket may be split, or the directory doubled to split it, without going 
+	 * over the cache budget.
+	 * 
+	 * @param b The full bucket.
+	 * @return true if the bucket may be split.
+	 */
+	private boolean canGrow(Bucket b)
+	{
+		long needed = (long) b.getCapacity() * Character.BYTES;
+		if (this.depth == b.getDepth()) {
+			// At max depth the bucket would be chained, which never ends for a cache.
+			if (this.depth == this.maxDepth)
+				return false;
+			needed += (long) this.directory.length * Integer.BYTES;
+		}
+		return this.bytesUsed + needed <= this.cacheBudget;
+	}
+	
+	/**
+	 * Checks a bucket's filter for a pseudokey, without reading the bucket.
+	 * 
+	 * @param b Bucket the pseudokey hashes to.
+	 * @param pseudokey Pseudokey of the value being looked up.
+	 * @return false if the value is definitely not in b, true otherwise.
+	 */
+	private boolean mightContain(Bucket b, int pseudokey)
+	{
+		BloomFilter bloom = b.getBloomFilter();
+		if (bloom == null || bloom.mightContain(pseudokey))
+			return true;
+		
+		this.metrics.filtered();
+		return false;
+	}
+	
+	/**
+	 * Adds the pseudokey of a value just inserted into a pinned bucket to the bucket's filter, 
+	 * rebuilding the filter larger if it has outgrown its size.
+	 * 
+	 * @param b Bucket the value was inserted into.
+	 * @param pseudokey Pseudokey of the value.
+	 */
+	private void addToBloomFilter(Bucket b, int pseudokey)
+	{
+		BloomFilter bloom = b.getBloomFilter();
+		if (bloom == null) {
+			// Buckets created while filters were off, or loaded from a snapshot, get one now.
+			if (this.bloomBitsPerKey > 0)
+				rebuildBloomFilter(b);
+			return;
+		}
+		
+		bloom.add(pseudokey);
+		if (bloom.isFull())
+			rebuildBloomFilter(b);
+	}
+	
+	/**
+	 * Rebuilds a pinned bucket's filter from the words stored in it and its chain.
+	 * 
+	 * @param b Bucket to rebuild the filter of.
+	 */
+	private void rebuildBloomFilter(Bucket b)
+	{
+		if (this.bloomBitsPerKey == 0) {
+			b.setBloomFilter(null);
+			return;
+		}
+		
+		List<String> words = new ArrayList<String>();
+		b.getWords(words);
+		BloomFilter bloom = newBloomFilter(words.size());
+		for (String word : words)
+			bloom.add(this.h.hash(word));
+		b.setBloomFilter(bloom);
+	}
+	
+	/**
+	 * Creates an empty filter with room for count pseudokeys and as many again before it has to 
+	 * be rebuilt.
+	 * 
+	 * @param count Number of pseudokeys about to be added.
+	 * @return the filter, or null if buckets have no filters.
+	 */
+	private BloomFilter newBloomFilter(int count)
+	{
+		if (this.bloomBitsPerKey == 0)
+			return null;
+		return new BloomFilter(Math.max(MIN_BLOOM_KEYS, 2 * count), this.bloomBitsPerKey, this.bloomHashes);
+	}
+	
+	/**
+	 * Keeps a bucket in memory until it is unpinned, if buckets are kept in a BufferPool.
+	 * 
+	 * @param b Bucket about to be used.
+	 */
+	private void pin(Bucket b)
+	{
+		if (this.pool != null)
+			this.pool.pin(b);
+	}
+	
+	/**
+	 * Lets the BufferPool write a bucket whose depth changed to a new page, if buckets are kept 
+	 * in one.
+	 * 
+	 * @param b Bucket that was split.
+	 */
+	private void relocate(Bucket b)
+	{
+		if (this.pool != null)
+			this.pool.relocate(b);
+	}
+	
+	/**
+	 * Allows a pinned bucket to be evicted again, if buckets are kept in a BufferPool.
+	 * 
+	 * @param b Bucket that is no longer being used.
+	 * @param dirty true if the bucket was changed while it was pinned.
+	 */
+	private void unpin(Bucket b, boolean dirty)
+	{
+		if (this.pool != null)
+			this.pool.unpin(b, dirty);
+	}
+	
+	public void print()
+	{
+		System.out.println("Directory Depth: " + this.depth);
+		int len = (int) Math.pow(2, this.depth);
+		for (int i = 0; i < len; i++) {
+			String binaryI = String.format("%30s", Integer.toBinaryString(i)).replace(' ', '0');
+			System.out.print(binaryI);
+			pin(directory[i]);
+			directory[i].printBucket();
+			unpin(directory[i], false);
+			System.out.println();
+		}
+		System.out.println();
+	}
+}
@@ -0,0 +1,431 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * .DirectoryBenchmark.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Measures the throughput and latency of Directory operations, so changes can be checked for 
+ * regressions, and compares them with other HashIndex engines.
+ *
+ * Every benchmark runs a number of warmup iterations that are thrown away, so the JIT has compiled 
+ * the code being measured, then a number of measured iterations. Setup is never timed. Results 
+ * are printed as the mean over measured iterations with their standard deviation. The size bench 
+ * is not timed: it builds each index once and prints its depth and bytes per key.
+ *
+ * Arguments are name=value pairs, and lists are separated by commas:
+ *   bench=insert,insertAll,lookup,latency,containsAll,filter,expand,hash,size
+ *   index=extendible,linear,frontcoded  (engines; filter and expand only run for extendible)
+ *   dist=words,uniform,zipfian,prefix   (key distributions, see KeyGenerator)
+ *   bucketSize=64,256,4096              (bucket sizes in bytes)
+ *   keys=100000                         (number of keys, at most the file's for words)
+ *   hitRatio=0.5                        (fraction of lookups that hit)
+ *   warmup=3 iterations=5
+ *   file=input/words.txt
+ */
+public class DirectoryBenchmark
+{
+	// Results of every measured operation are folded into this, so none of them can be skipped.
+	private static volatile long sink;
+	
+	private Map<String, String> options;
+	private int warmup;
+	private int iterations;
+	
+	/**
+	 * A piece of work to measure.
+	 */
+	private static abstract class Task
+	{
+		/**
+		 * Prepares a run. Not timed.
+		 */
+		void setup() {}
+		
+		/**
+		 * Does the work being measured.
+		 * 
+		 * @return a value depending on every result, so no work is optimized away.
+		 */
+		abstract long run();
+	}
+	
+	public static void main(String[] args) throws IOException
+	{
+		Map<String, String> options = new TreeMap<String, String>();
+		options.put("bench", "insert,insertAll,lookup,latency,containsAll,filter,expand,hash,size");
+		options.put("index", "extendible");
+		options.put("dist", "words,uniform,zipfian,prefix");
+		options.put("bucketSize", "64,256,4096");
+		options.put("keys", "100000");
+		options.put("hitRatio", "0.5");
+		options.put("warmup", "3");
+		options.put("iterations", "5");
+		options.put("file", "input/words.txt");
+		
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0 || ! options.containsKey(arg.substring(0, eq))) {
+				System.err.println("Usage: java DirectoryBenchmark [name=value ...]");
+				System.err.println("Options and defaults: " + options);
+				System.exit(-1);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		
+		new DirectoryBenchmark(options).runAll();
+	}
+	
+	/**
+	 * Constructs a DirectoryBenchmark.
+	 * 
+	 * @param options Options as described in the class comment.
+	 */
+	public DirectoryBenchmark(Map<String, String> options)
+	{
+		this.options = options;
+		this.warmup = Integer.parseInt(options.get("warmup"));
+		this.iterations = Integer.parseInt(options.get("iterations"));
+	}
+	
+	/**
+	 * Runs every selected benchmark for every combination of parameters.
+	 * 
+	 * @throws IOException when the words file cannot be read.
+	 */
+	public void runAll() throws IOException
+	{
+		List<String> benches = Arrays.asList(this.options.get("bench").split(","));
+		int count = Integer.parseInt(this.options.get("keys"));
+		double hitRatio = Double.parseDouble(this.options.get("hitRatio"));
+		
+		System.out.printf("%-12s %-10s %-8s %6s %8s %14s %12s  %s%n", 
+				"Benchmark", "Index", "Dist", "Bucket", "Keys", "Score", "Error", "Units");
+		
+		for (String dist : this.options.get("dist").split(",")) {
+			KeyGenerator gen = new KeyGenerator(42);
+			List<String> keys = gen.generate(dist, count, this.options.get("file"));
+			gen.shuffle(keys);
+			List<String> lookups = gen.lookups(keys, keys.size(), hitRatio);
+			
+			if (benches.contains("hash"))
+				report("hash", "-", dist, 0, keys.size(), measure(hash(keys), keys.size()));
+			
+			for (String size : this.options.get("bucketSize").split(",")) {
+				int bucketSize = Integer.parseInt(size);
+				int longest = 0;
+				for (String key : keys)
+					longest = Math.max(longest, key.length());
+				if (bucketSize < longest + 1) {
+					System.out.println("Skipping bucket size " + bucketSize + " for " + dist + 
+							": keys are up to " + longest + " long");
+					continue;
+				}
+				
+				for (String index : this.options.get("index").split(",")) {
+					// Front coding also needs room for a key's two lengths and a restart point.
+					if (index.equals("frontcoded") && bucketSize < longest + 4) {
+						System.out.println("Skipping bucket size " + bucketSize + " for " + index + 
+								" on " + dist + ": keys are up to " + longest + " long");
+						continue;
+					}
+					
+					if (benches.contains("insert"))
+						report("insert", index, dist, bucketSize, keys.size(), 
+								measure(insert(index, keys, bucketSize), keys.size()));
+					if (benches.contains("insertAll"))
+						report("insertAll", index, dist, bucketSize, keys.size(), 
+								measure(insertAll(index, keys, bucketSize), keys.size()));
+					if (benches.contains("lookup"))
+						report("lookup", index, dist, bucketSize, keys.size(), 
+								measure(lookup(index, keys, lookups, bucketSize), lookups.size()));
+					if (benches.contains("containsAll"))
+						report("containsAll", index, dist, bucketSize, keys.size(), 
+								measure(containsAll(index, keys, lookups, bucketSize), lookups.size()));
+					if (benches.contains("latency"))
+						latency(index, dist, keys, lookups, bucketSize);
+					if (benches.contains("size"))
+						size(index, dist, keys, bucketSize);
+				}
+				if (benches.contains("filter"))
+					filter(dist, keys, bucketSize);
+				if (benches.contains("expand"))
+					expand(dist, keys, bucketSize);
+			}
+		}
+	}
+	
+	/**
+	 * Runs a task for the warmup and measured iterations.
+	 * 
+	 * @param task Task to run.
+	 * @param ops Number of operations a run of the task does.
+	 * @return the nanoseconds per operation of every measured iteration.
+	 */
+	private double[] measure(Task task, int ops)
+	{
+		double[] nanosPerOp = new double[this.iterations];
+		for (int i = 0; i < this.warmup + this.iterations; i++) {
+			task.setup();
+			long start = System.nanoTime();
+			sink += task.run();
+			long elapsed = System.nanoTime() - start;
+			
+			if (i >= this.warmup)
+				nanosPerOp[i - this.warmup] = (double) elapsed / ops;
+		}
+		return nanosPerOp;
+	}
+	
+	private Task hash(final List<String> keys)
+	{
+		final Hasher<String> h = StringHasher.getInstance();
+		return new Task() {
+			long run()
+			{
+				long sum = 0;
+				for (String key : keys)
+					sum += h.hash(key);
+				return sum;
+			}
+		};
+	}
+	
+	private Task insert(final String index, final List<String> keys, final int bucketSize)
+	{
+		return new Task() {
+			HashIndex d;
+			
+			void setup()
+			{
+				this.d = newIndex(index, bucketSize);
+			}
+			
+			long run()
+			{
+				for (String key : keys)
+					this.d.insert(key);
+				return this.d.getBucketCount();
+			}
+		};
+	}
+	
+	private Task insertAll(final String index, final List<String> keys, final int bucketSize)
+	{
+		return new Task() {
+			HashIndex d;
+			
+			void setup()
+			{
+				this.d = newIndex(index, bucketSize);
+			}
+			
+			long run()
+			{
+				this.d.insertAll(keys);
+				return this.d.getBucketCount();
+			}
+		};
+	}
+	
+	private Task lookup(String index, List<String> keys, final List<String> lookups, int bucketSize)
+	{
+		final HashIndex d = build(index, keys, bucketSize);
+		return new Task() {
+			long run()
+			{
+				long found = 0;
+				for (String key : lookups) {
+					if (d.contains(key))
+						found++;
+				}
+				return found;
+			}
+		};
+	}
+	
+	private Task containsAll(String index, List<String> keys, final List<String> lookups, int bucketSize)
+	{
+		final HashIndex d = build(index, keys, bucketSize);
+		return new Task() {
+			long run()
+			{
+				long found = 0;
+				for (boolean b : d.containsAll(lookups)) {
+					if (b)
+						found++;
+				}
+				return found;
+			}
+		};
+	}
+	
+	/**
+	 * Times every lookup on its own and reports percentiles. Includes the cost of reading the 
+	 * clock, which is tens of nanoseconds.
+	 */
+	private void latency(String index, String dist, List<String> keys, List<String> lookups, int bucketSize)
+	{
+		HashIndex d = build(index, keys, bucketSize);
+		long[] nanos = new long[lookups.size()];
+		for (int i = 0; i < this.warmup + 1; i++) {
+			for (int j = 0; j < nanos.length; j++) {
+				long start = System.nanoTime();
+				boolean found = d.contains(lookups.get(j));
+				nanos[j] = System.nanoTime() - start;
+				if (found)
+					sink++;
+			}
+		}
+		
+		Arrays.sort(nanos);
+		double[] percentiles = {0.5, 0.9, 0.99, 0.999};
+		for (double p : percentiles) {
+			long value = nanos[Math.min(nanos.length - 1, (int) (p * nanos.length))];
+			report("lookup p" + (p * 100), index, dist, bucketSize, keys.size(), new double[] {value});
+		}
+	}
+	
+	/**
+	 * Reports the depth an index reaches and the memory it takes per key once every key is in.
+	 */
+	private void size(String index, String dist, List<String> keys, int bucketSize)
+	{
+		HashIndex d = build(index, keys, bucketSize);
+		report("depth", index, dist, bucketSize, keys.size(), new double[] {d.getDepth()}, "bits");
+		report("bytes", index, dist, bucketSize, keys.size(), 
+				new double[] {(double) d.getSizeInBytes() / keys.size()}, "B/key");
+	}
+	
+	/**
+	 * Measures splitting full buckets with Bucket.filter, the work done on every split.
+	 */
+	private void filter(String dist, final List<String> keys, final int bucketSize)
+	{
+		final List<Bucket> full = new ArrayList<Bucket>();
+		Task task = new Task() {
+			void setup()
+			{
+				full.clear();
+				Bucket b = new Bucket(bucketSize, StringHasher.getInstance());
+				for (String key : keys) {
+					if (! b.insert(key)) {
+						full.add(b);
+						b = new Bucket(bucketSize, StringHasher.getInstance());
+						b.insert(key);
+					}
+				}
+			}
+			
+			long run()
+			{
+				long moved = 0;
+				for (Bucket b : full) {
+					Bucket b2 = new Bucket(b);
+					b2.incDepth1();
+					b.incDepth0();
+					b.filter(b2, b.getBitPattern());
+					moved += b2.getRemainingSize();
+				}
+				return moved;
+			}
+		};
+		
+		// Run setup once to count the buckets filtered per run.
+		task.setup();
+		report("filter", "extendible", dist, bucketSize, keys.size(), measure(task, Math.max(1, full.size())));
+	}
+	
+	/**
+	 * Measures directory doubling at each depth. expand() is private, so this times the inserts 
+	 * that double the directory, which also includes the split that follows each doubling.
+	 */
+	private void expand(String dist, List<String> keys, int bucketSize)
+	{
+		Map<Integer, List<Long>> byDepth = new TreeMap<Integer, List<Long>>();
+		for (int i = 0; i < this.warmup + this.iterations; i++) {
+			Directory d = new Directory(bucketSize);
+			for (String key : keys) {
+				int depth = d.getDepth();
+				long start = System.nanoTime();
+				d.insert(key);
+				long elapsed = System.nanoTime() - start;
+				
+				if (i >= this.warmup && d.getDepth() > depth) {
+					if (! byDepth.containsKey(d.getDepth()))
+						byDepth.put(d.getDepth(), new ArrayList<Long>());
+					byDepth.get(d.getDepth()).add(elapsed);
+				}
+			}
+		}
+		
+		for (Map.Entry<Integer, List<Long>> e : byDepth.entrySet()) {
+			double[] nanos = new double[e.getValue().size()];
+			for (int i = 0; i < nanos.length; i++)
+				nanos[i] = e.getValue().get(i);
+			report("expand d=" + e.getKey(), "extendible", dist, bucketSize, keys.size(), nanos);
+		}
+	}
+	
+	private HashIndex build(String index, List<String> keys, int bucketSize)
+	{
+		HashIndex d = newIndex(index, bucketSize);
+		for (String key : keys)
+			d.insert(key);
+		return d;
+	}
+	
+	/**
+	 * Creates an empty index.
+	 * 
+	 * @param index Name of the engine: extendible, linear or frontcoded.
+	 * @param bucketSize Size of each bucket in bytes.
+	 * @return the index.
+	 */
+	static HashIndex newIndex(String index, int bucketSize)
+	{
+		if (index.equals("extendible"))
+			return new Directory(bucketSize);
+		if (index.equals("linear"))
+			return new LinearHashIndex(bucketSize);
+		if (index.equals("frontcoded"))
+			return new FrontCodedSet(bucketSize);
+		
+		throw new IllegalArgumentException("Unknown index: " + index);
+	}
+	
+	/**
+	 * Prints the mean and standard deviation of a benchmark's nanoseconds per operation.
+	 */
+	private void report(String name, String index, String dist, int bucketSize, int keys, double[] nanosPerOp)
+	{
+		report(name, index, dist, bucketSize, keys, nanosPerOp, "ns/op");
+	}
+	
+	/**
+	 * Prints the mean and standard deviation of a benchmark's scores.
+	 */
+	private void report(String name, String index, String dist, int bucketSize, int keys, double[] nanosPerOp, 
+			String units)
+	{
+		double mean = 0;
+		for (double n : nanosPerOp)
+			mean += n;
+		mean /= nanosPerOp.length;
+		
+		double variance = 0;
+		for (double n : nanosPerOp)
+			variance += (n - mean) * (n - mean);
+		double error = (nanosPerOp.length > 1) ? Math.sqrt(variance / (nanosPerOp.length - 1)) : 0;
+		
+		System.out.printf("%-12s %-10s %-8s %6s %8d %14.1f %12.1f  %s%n", 
+				name, index, dist, (bucketSize == 0) ? "-" : bucketSize, keys, mean, error, units);
+	}
+}
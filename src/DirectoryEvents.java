@@ -0,0 +1,95 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * .DirectoryEvents.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * JDK Flight Recorder events for changes to the structure of a Directory, so they can be lined up 
+ * with GC pauses and latency outliers in a recording.
+ *
+ * Events are only committed when a recording has them enabled. Otherwise begin() and 
+ * shouldCommit() are cheap checks, and the event objects do not escape, so the JIT removes them.
+ */
+public class DirectoryEvents
+{
+	private static final String CATEGORY = "Extendible Hashing";
+	
+	private DirectoryEvents() {}
+	
+	@Name("exhash.BucketSplit")
+	@Label("Bucket Split")
+	@Category(CATEGORY)
+	@Description("A full bucket was split in two without doubling the directory")
+	@StackTrace(false)
+	static class Split extends Event
+	{
+		@Label("Local Depth")
+		@Description("Local depth of the two buckets after the split")
+		int localDepth;
+		
+		@Label("Bytes Moved")
+		@Description("Bytes of words moved to the new bucket")
+		@DataAmount
+		long bytesMoved;
+	}
+	
+	@Name("exhash.DirectoryExpand")
+	@Label("Directory Expand")
+	@Category(CATEGORY)
+	@Description("The directory was doubled, or grown by several doublings at once by a batch")
+	@StackTrace(false)
+	static class Expand extends Event
+	{
+		@Label("Old Length")
+		int oldLength;
+		
+		@Label("New Length")
+		int newLength;
+		
+		@Label("Bytes Copied")
+		@Description("Bytes of bucket references written to the new directory, counting compressed references")
+		@DataAmount
+		long bytesCopied;
+	}
+	
+	@Name("exhash.BucketChain")
+	@Label("Bucket Chain")
+	@Category(CATEGORY)
+	@Description("An overflow bucket was chained because the directory reached its maximum depth")
+	@StackTrace(false)
+	static class Chain extends Event
+	{
+		@Label("Chain Length")
+		@Description("Number of buckets chained to the head bucket, including the new one")
+		int chainLength;
+	}
+	
+	@Name("exhash.SlowLookup")
+	@Label("Slow Lookup")
+	@Category(CATEGORY)
+	@Description("A lookup took longer than the threshold")
+	@Threshold("100 us")
+	@StackTrace(false)
+	static class SlowLookup extends Event
+	{
+		@Label("Key Length")
+		int keyLength;
+		
+		@Label("Found")
+		boolean found;
+		
+		@Label("Bucket Resident")
+		@Description("Whether the bucket's contents were in memory before the lookup")
+		boolean resident;
+	}
+}
@@ -0,0 +1,243 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .DirectoryFile.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Saves a Directory to a binary snapshot file, and loads it back by memory-mapping the file.
+ *
+ * The file holds a header, then the directory as one (local depth, page) entry per distinct
+ * bucket in directory order, with the 2^(global depth - local depth) aliases of each bucket
+ * collapsed into that entry, then the raw bucket pages. Each bucket's page is followed by the 
+ * pages of the buckets chained to it. Loading only reads the header and the directory entries. 
+ * Each bucket's page is read the first time the bucket is used.
+ *
+ *          +--------------------------------------------------------------+
+ * file =   | HEADER | (depth,page) | (depth,page) | ... | PAGE | PAGE | ... |
+ *          +--------------------------------------------------------------+
+ */
+public class DirectoryFile implements PageSource
+{
+	private static final int MAGIC = 0x45584853;	/* "EXHS" */
+	private static final int VERSION = 2;
+	
+	// Magic, version, global depth, hasher id, bucket capacity, bucket count, page count.
+	private static final int HEADER_SIZE = 7 * Integer.BYTES;
+	private static final int ENTRY_SIZE = 2 * Integer.BYTES;
+	
+	private static final int STRING_HASHER_ID = 1;
+	
+	// Largest region of the file mapped by a single buffer.
+	private static final long SEGMENT_SIZE = 1L << 30;
+	
+	private MappedByteBuffer[] segments;
+	private int pagesPerSegment;
+	private int pageSize;
+	
+	private DirectoryFile(MappedByteBuffer[] segments, int pagesPerSegment, int pageSize)
+	{
+		this.segments = segments;
+		this.pagesPerSegment = pagesPerSegment;
+		this.pageSize = pageSize;
+	}
+	
+	/**
+	 * Writes a snapshot of d to fileName. Buckets of a directory kept in a BufferPool are pinned 
+	 * while their pages are written, so evicted buckets are read back through the pool and count 
+	 * against its limit like any other use.
+	 * 
+	 * @param d Directory to save.
+	 * @param fileName File to write the snapshot to.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public static void save(Directory d, String fileName) throws IOException
+	{
+		int hasherId = getHasherId(d.getHasher());
+		BufferPool pool = d.getPool();
+		
+		// Every distinct bucket in directory order.
+		List<Bucket> heads = new ArrayList<Bucket>();
+		for (int i = 0; i < d.getLength(); i += 1 << (d.getDepth() - d.getBucket(i).getDepth()))
+			heads.add(d.getBucket(i));
+		
+		int[] headPages = new int[heads.size()];
+		int capacity = 0;
+		int pageCount = 0;
+		
+		FileOutputStream file = new FileOutputStream(fileName);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+		try {
+			// Pages are numbered as they are written, each bucket followed by its chain, so only 
+			// the bucket being written has to be in memory. The header and directory entries 
+			// before them are written last, once every page number is known.
+			file.getChannel().position(HEADER_SIZE + (long) heads.size() * ENTRY_SIZE);
+			
+			ByteBuffer page = null;
+			for (int i = 0; i < heads.size(); i++) {
+				Bucket head = heads.get(i);
+				if (pool != null)
+					pool.pin(head);
+				
+				try {
+					if (page == null) {
+						capacity = head.getCapacity();
+						page = ByteBuffer.allocate(Bucket.getPageSize(capacity));
+					}
+					
+					headPages[i] = pageCount;
+					for (Bucket b = head; b != null; ) {
+						Bucket next = b.getNextBucket();
+						page.clear();
+						b.writePage(page, (next == null) ? -1 : pageCount + 1, b != head);
+						out.write(page.array());
+						pageCount++;
+						b = next;
+					}
+				}
+				finally {
+					if (pool != null)
+						pool.unpin(head, false);
+				}
+			}
+			
+			out.flush();
+			file.getChannel().position(0);
+			
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(d.getDepth());
+			out.writeInt(hasherId);
+			out.writeInt(capacity);
+			out.writeInt(heads.size());
+			out.writeInt(pageCount);
+			
+			for (int i = 0; i < heads.size(); i++) {
+				out.writeInt(heads.get(i).getDepth());
+				out.writeInt(headPages[i]);
+			}
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("DirectoryFile.save(Directory, String)",
+									 "Cannot write snapshot to " + fileName,
+									 ioe);
+			throw ioe;
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Loads a snapshot written by save(Directory, String). Only the directory is read; bucket
+	 * contents are read from the mapped file the first time each bucket is used.
+	 * 
+	 * @param fileName File to load the snapshot from.
+	 * @return the loaded Directory.
+	 * @throws IOException when the file cannot be read or is not a snapshot.
+	 */
+	public static Directory load(String fileName) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+				throw new IOException(fileName + " is not a directory snapshot");
+			
+			int depth = header.getInt();
+			Hasher<String> h = getHasher(header.getInt());
+			int capacity = header.getInt();
+			int bucketCount = header.getInt();
+			int pageCount = header.getInt();
+			
+			long pagesStart = HEADER_SIZE + (long) bucketCount * ENTRY_SIZE;
+			int pageSize = Bucket.getPageSize(capacity);
+			if (channel.size() < pagesStart + (long) pageCount * pageSize)
+				throw new IOException(fileName + " is truncated");
+			
+			// Map the pages in segments, since a single buffer cannot address more than 2GB.
+			int pagesPerSegment = (int) (SEGMENT_SIZE / pageSize);
+			int segmentCount = (pageCount + pagesPerSegment - 1) / pagesPerSegment;
+			MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				long start = pagesStart + (long) i * pagesPerSegment * pageSize;
+				long length = (long) Math.min(pagesPerSegment, pageCount - i * pagesPerSegment) * pageSize;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+			DirectoryFile pages = new DirectoryFile(segments, pagesPerSegment, pageSize);
+			
+			// Expand the directory entries back into their aliases.
+			ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) bucketCount * ENTRY_SIZE);
+			Bucket[] directory = new Bucket[1 << depth];
+			int slot = 0;
+			for (int i = 0; i < bucketCount; i++) {
+				int localDepth = entries.getInt();
+				int page = entries.getInt();
+				int aliases = 1 << (depth - localDepth);
+				int bitPattern = (localDepth == 0) ? -1 : slot >>> (depth - localDepth);
+				
+				Bucket b = new Bucket(localDepth, bitPattern, h, pages, page);
+				for (int j = 0; j < aliases; j++)
+					directory[slot + j] = b;
+				slot += aliases;
+			}
+			if (slot != directory.length)
+				throw new IOException(fileName + " has a corrupted directory");
+			
+			return new Directory(directory, depth, h);
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("DirectoryFile.load(String)",
+									 "Cannot load snapshot from " + fileName,
+									 ioe);
+			throw ioe;
+		}
+		finally {
+			// Mapped buffers stay valid after the file is closed.
+			file.close();
+		}
+	}
+	
+	/**
+	 * Gets a page of the mapped file.
+	 * 
+	 * @param page Number of the page.
+	 * @return A buffer whose contents start with the page.
+	 */
+	public ByteBuffer getPage(int page)
+	{
+		ByteBuffer segment = this.segments[page / this.pagesPerSegment].duplicate();
+		segment.position((page % this.pagesPerSegment) * this.pageSize);
+		segment.limit(segment.position() + this.pageSize);
+		return segment.slice();
+	}
+	
+	private static int getHasherId(Hasher<String> h)
+	{
+		if (h == StringHasher.getInstance())
+			return STRING_HASHER_ID;
+		
+		throw new IllegalArgumentException("Only directories using StringHasher can be saved");
+	}
+	
+	private static Hasher<String> getHasher(int hasherId) throws IOException
+	{
+		if (hasherId == STRING_HASHER_ID)
+			return StringHasher.getInstance();
+		
+		throw new IOException("Unknown hasher id " + hasherId);
+	}
+}
@@ -0,0 +1,422 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * .DirectoryMetrics.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Counters and gauges of a Directory, exposed as a JMX MBean and as snapshots.
+ *
+ * Counters are LongAdders, which spread updates over striped cells, so counting costs an 
+ * uncontended add even when several threads share a directory. Gauges are computed from the 
+ * directory when they are read, so they cost nothing until then. They are read without locking 
+ * and may be slightly stale while the directory is being changed. Buckets whose contents are not 
+ * in memory are left out of the fill factor histogram and the chain lengths, so reading a gauge 
+ * never reads a page. A BufferPool evicts buckets under its own lock, so the gauges hold that 
+ * lock while they measure each chain, and a bucket cannot be emptied halfway through, even when 
+ * they are read from a JMX thread.
+ */
+public class DirectoryMetrics implements DirectoryMetricsMBean
+{
+	// Bin i of the probe histogram counts lookups taking [2^(i-1), 2^i) probes, and bin 0 misses.
+	private static final int PROBE_BINS = 16;
+	private static final int FILL_BINS = 10;
+	
+	private Directory d;
+	
+	private LongAdder inserts = new LongAdder();
+	private LongAdder removes = new LongAdder();
+	private LongAdder lookups = new LongAdder();
+	private LongAdder filteredLookups = new LongAdder();
+	private LongAdder hits = new LongAdder();
+	private LongAdder misses = new LongAdder();
+	private LongAdder evictions = new LongAdder();
+	private LongAdder splits = new LongAdder();
+	private LongAdder expands = new LongAdder();
+	private LongAdder chains = new LongAdder();
+	private LongAdder copies = new LongAdder();
+	private LongAdder[] probes;
+	
+	/**
+	 * Constructs the metrics of a directory.
+	 * 
+	 * @param d the directory being measured.
+	 */
+	DirectoryMetrics(Directory d)
+	{
+		this.d = d;
+		this.probes = new LongAdder[PROBE_BINS];
+		for (int i = 0; i < PROBE_BINS; i++)
+			this.probes[i] = new LongAdder();
+	}
+	
+	/**
+	 * Registers the metrics with the platform MBean server.
+	 * 
+	 * @param name Name distinguishing this directory from others in the same JVM.
+	 * @return the name the MBean was registered under.
+	 * @throws JMException when the MBean cannot be registered.
+	 */
+	public ObjectName register(String name) throws JMException
+	{
+		ObjectName objectName = new ObjectName("ExtendibleHashing:type=Directory,name=" + ObjectName.quote(name));
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, objectName);
+		}
+		catch (JMException jme) {
+			ErrorLogger.logException("DirectoryMetrics.register(String)",
+									 "Cannot register " + objectName,
+									 jme);
+			throw jme;
+		}
+		return objectName;
+	}
+	
+	void inserted(int count)
+	{
+		this.inserts.add(count);
+	}
+	
+	void removed()
+	{
+		this.removes.increment();
+	}
+	
+	void lookedUp(int count)
+	{
+		this.lookups.add(count);
+	}
+	
+	void filtered()
+	{
+		this.filteredLookups.increment();
+	}
+	
+	void hitOrMiss(boolean found)
+	{
+		if (found)
+			this.hits.increment();
+		else
+			this.misses.increment();
+	}
+	
+	void hitsAndMisses(int hits, int misses)
+	{
+		this.hits.add(hits);
+		this.misses.add(misses);
+	}
+	
+	void evicted()
+	{
+		this.evictions.increment();
+	}
+	
+	void split(int count)
+	{
+		this.splits.add(count);
+	}
+	
+	void expanded()
+	{
+		this.expands.increment();
+	}
+	
+	void chained()
+	{
+		this.chains.increment();
+	}
+	
+	void copied()
+	{
+		this.copies.increment();
+	}
+	
+	/**
+	 * Records the number of probes a lookup took.
+	 * 
+	 * @param count the number of probes, or -1 if the value was not found.
+	 */
+	void probed(int count)
+	{
+		int bin = (count < 0) ? 0 : Math.min(PROBE_BINS - 1, 32 - Integer.numberOfLeadingZeros(count));
+		this.probes[bin].increment();
+	}
+	
+	public int getGlobalDepth()
+	{
+		return this.d.getDepth();
+	}
+	
+	public int getDirectoryLength()
+	{
+		return this.d.getLength();
+	}
+	
+	public int getBucketCount()
+	{
+		return snapshot().bucketCount;
+	}
+	
+	public long getInsertCount()
+	{
+		return this.inserts.sum();
+	}
+	
+	public long getRemoveCount()
+	{
+		return this.removes.sum();
+	}
+	
+	public long getLookupCount()
+	{
+		return this.lookups.sum();
+	}
+	
+	/**
+	 * Gets the number of lookups answered by a bucket's Bloom filter without reading the bucket.
+	 * 
+	 * @return the number of filtered lookups.
+	 */
+	public long getFilteredLookupCount()
+	{
+		return this.filteredLookups.sum();
+	}
+	
+	public long getHitCount()
+	{
+		return this.hits.sum();
+	}
+	
+	public long getMissCount()
+	{
+		return this.misses.sum();
+	}
+	
+	/**
+	 * Gets the fraction of lookups that found their value.
+	 * 
+	 * @return the hit rate, or 0 if nothing has been looked up.
+	 */
+	public double getHitRate()
+	{
+		long hits = this.hits.sum();
+		long lookups = hits + this.misses.sum();
+		return (lookups == 0) ? 0 : (double) hits / lookups;
+	}
+	
+	/**
+	 * Gets the number of values a cache dropped to stay within its budget.
+	 * 
+	 * @return the number of evictions.
+	 */
+	public long getEvictionCount()
+	{
+		return this.evictions.sum();
+	}
+	
+	public long getCacheBytesUsed()
+	{
+		return this.d.getCacheBytesUsed();
+	}
+	
+	public long getSplitCount()
+	{
+		return this.splits.sum();
+	}
+	
+	public long getExpandCount()
+	{
+		return this.expands.sum();
+	}
+	
+	public long getChainCount()
+	{
+		return this.chains.sum();
+	}
+	
+	/**
+	 * Gets the number of buckets copied before a change because an open snapshot could see them.
+	 * 
+	 * @return the number of copied buckets.
+	 */
+	public long getSnapshotCopyCount()
+	{
+		return this.copies.sum();
+	}
+	
+	public int getLongestChain()
+	{
+		return snapshot().longestChain;
+	}
+	
+	public long getBytesResident()
+	{
+		return snapshot().bytesResident;
+	}
+	
+	/**
+	 * Gets the number of buckets in memory by how full they are. Bin i counts buckets that are 
+	 * between i and i+1 tenths full.
+	 * 
+	 * @return the fill factor histogram.
+	 */
+	public long[] getFillFactorHistogram()
+	{
+		return snapshot().fillFactors;
+	}
+	
+	/**
+	 * Gets the number of lookups by probe count. Bin 0 counts misses, and bin i counts lookups 
+	 * taking between 2^(i-1) and 2^i - 1 probes.
+	 * 
+	 * @return the probe count histogram.
+	 */
+	public long[] getProbeHistogram()
+	{
+		long[] bins = new long[PROBE_BINS];
+		for (int i = 0; i < PROBE_BINS; i++)
+			bins[i] = this.probes[i].sum();
+		return bins;
+	}
+	
+	/**
+	 * Reads every counter and gauge at once.
+	 * 
+	 * @return the current values.
+	 */
+	public Snapshot snapshot()
+	{
+		Snapshot s = new Snapshot();
+		s.globalDepth = this.d.getDepth();
+		s.directoryLength = this.d.getLength();
+		s.inserts = this.inserts.sum();
+		s.removes = this.removes.sum();
+		s.lookups = this.lookups.sum();
+		s.filteredLookups = this.filteredLookups.sum();
+		s.hits = this.hits.sum();
+		s.misses = this.misses.sum();
+		s.evictions = this.evictions.sum();
+		s.cacheBytesUsed = this.d.getCacheBytesUsed();
+		s.splits = this.splits.sum();
+		s.expands = this.expands.sum();
+		s.chains = this.chains.sum();
+		s.snapshotCopies = this.copies.sum();
+		s.probes = getProbeHistogram();
+		s.fillFactors = new long[FILL_BINS];
+		
+		// Directory references are counted as compressed oops.
+		s.bytesResident = (long) s.directoryLength * Integer.BYTES;
+		
+		BufferPool pool = this.d.getPool();
+		int i = 0;
+		while (i < s.directoryLength) {
+			Bucket head = this.d.getBucket(i);
+			s.bucketCount++;
+			if (head.getBloomFilter() != null)
+				s.bytesResident += head.getBloomFilter().getSizeInBytes();
+			
+			// Only hold the pool's lock for one chain at a time, so the directory's own thread is 
+			// never stalled for the whole scan.
+			if (pool != null) {
+				synchronized (pool) {
+					measureChain(s, head);
+				}
+			}
+			else {
+				measureChain(s, head);
+			}
+			
+			i += 1 << Math.max(0, s.globalDepth - head.getDepth());
+		}
+		
+		return s;
+	}
+	
+	/**
+	 * Adds the resident buckets of a chain to the fill factor histogram, the bytes resident and 
+	 * the longest chain of a snapshot.
+	 * 
+	 * @param s Snapshot being computed.
+	 * @param head First bucket of the chain.
+	 */
+	private void measureChain(Snapshot s, Bucket head)
+	{
+		int chain = 0;
+		for (Bucket b = head; b != null && b.isResident(); b = b.getNextBucket()) {
+			int capacity = b.getCapacity();
+			int used = capacity - b.getRemainingSize();
+			if (capacity > 0)
+				s.fillFactors[Math.min(FILL_BINS - 1, used * FILL_BINS / capacity)]++;
+			s.bytesResident += (long) capacity * Character.BYTES;
+			chain++;
+		}
+		s.longestChain = Math.max(s.longestChain, chain - 1);
+	}
+	
+	/**
+	 * Values of every counter and gauge at one point in time.
+	 */
+	public static class Snapshot
+	{
+		public int globalDepth;
+		public int directoryLength;
+		public int bucketCount;
+		public long inserts;
+		public long removes;
+		public long lookups;
+		public long filteredLookups;
+		public long hits;
+		public long misses;
+		public long evictions;
+		public long cacheBytesUsed;
+		public long splits;
+		public long expands;
+		public long chains;
+		public long snapshotCopies;
+		public int longestChain;
+		public long bytesResident;
+		public long[] fillFactors;
+		public long[] probes;
+		
+		/**
+		 * Formats the snapshot as one "name value" line per value, with histogram bins labelled 
+		 * by their lower bound.
+		 */
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("directory_global_depth ").append(this.globalDepth).append('\n');
+			sb.append("directory_length ").append(this.directoryLength).append('\n');
+			sb.append("directory_buckets ").append(this.bucketCount).append('\n');
+			sb.append("directory_inserts ").append(this.inserts).append('\n');
+			sb.append("directory_removes ").append(this.removes).append('\n');
+			sb.append("directory_lookups ").append(this.lookups).append('\n');
+			sb.append("directory_filtered_lookups ").append(this.filteredLookups).append('\n');
+			sb.append("directory_hits ").append(this.hits).append('\n');
+			sb.append("directory_misses ").append(this.misses).append('\n');
+			sb.append("directory_evictions ").append(this.evictions).append('\n');
+			sb.append("directory_cache_bytes_used ").append(this.cacheBytesUsed).append('\n');
+			sb.append("directory_splits ").append(this.splits).append('\n');
+			sb.append("directory_expands ").append(this.expands).append('\n');
+			sb.append("directory_chains ").append(this.chains).append('\n');
+			sb.append("directory_snapshot_copies ").append(this.snapshotCopies).append('\n');
+			sb.append("directory_longest_chain ").append(this.longestChain).append('\n');
+			sb.append("directory_bytes_resident ").append(this.bytesResident).append('\n');
+			for (int i = 0; i < this.fillFactors.length; i++)
+				sb.append("directory_fill_factor{ge=\"0.").append(i).append("\"} ").append(this.fillFactors[i]).append('\n');
+			for (int i = 0; i < this.probes.length; i++) {
+				String bound = (i == 0) ? "miss" : String.valueOf(1 << (i - 1));
+				sb.append("directory_probes{ge=\"").append(bound).append("\"} ").append(this.probes[i]).append('\n');
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * .DirectoryMetricsMBean.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * The JMX management interface of DirectoryMetrics.
+ */
+public interface DirectoryMetricsMBean
+{
+	public int getGlobalDepth();
+	
+	public int getDirectoryLength();
+	
+	public int getBucketCount();
+	
+	public long getInsertCount();
+	
+	public long getRemoveCount();
+	
+	public long getLookupCount();
+	
+	public long getFilteredLookupCount();
+	
+	public long getHitCount();
+	
+	public long getMissCount();
+	
+	public double getHitRate();
+	
+	public long getEvictionCount();
+	
+	public long getCacheBytesUsed();
+	
+	public long getSplitCount();
+	
+	public long getExpandCount();
+	
+	public long getChainCount();
+	
+	public long getSnapshotCopyCount();
+	
+	public int getLongestChain();
+	
+	public long getBytesResident();
+	
+	public long[] getFillFactorHistogram();
+	
+	public long[] getProbeHistogram();
+}
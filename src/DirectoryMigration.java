@@ -0,0 +1,212 @@
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * .DirectoryMigration.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Moves a live Directory to a new hasher without stopping it.
+ *
+ * A new directory using the new hasher is filled in the background, one old bucket at a time, in
+ * pseudokey order. Every old bucket covers a contiguous range of old pseudokeys, so the progress
+ * is a single cursor: values whose old pseudokey is below it have been migrated, and all others
+ * have not. Lookups and changes are routed by the cursor, to the new directory for migrated values
+ * and to the old one otherwise. Each migrated bucket is dropped from the old directory as soon as
+ * its words are in the new one, so migrating never needs twice the memory.
+ *
+ * Lookups run concurrently with each other, while changes and migration steps take turns.
+ */
+public class DirectoryMigration implements Runnable
+{
+	// One past the largest old pseudokey, as an unsigned number.
+	private static final long END = 1L << 32;
+	
+	private Directory from;		/* null once every bucket has been migrated */
+	private Directory to;
+	private Hasher<String> oldHasher;
+	
+	private volatile long cursor;	/* old pseudokeys below this have been migrated, unsigned */
+	private ReentrantReadWriteLock lock;
+	
+	private Thread thread;
+	private volatile RuntimeException failure;
+	
+	/**
+	 * Constructs a DirectoryMigration. Call start() to migrate in the background, or
+	 * migrateNext() to migrate one bucket at a time. From now on, the old directory must only be
+	 * used through the migration.
+	 * 
+	 * @param from Directory to migrate.
+	 * @param newHasher the hasher of the new directory.
+	 */
+	public DirectoryMigration(Directory from, Hasher<String> newHasher)
+	{
+		this.from = from;
+		this.oldHasher = from.getHasher();
+		this.to = new Directory(from.getBucket(0).getCapacity(), newHasher);
+		this.cursor = 0;
+		this.lock = new ReentrantReadWriteLock();
+		this.thread = new Thread(this, "DirectoryMigration");
+		this.thread.setDaemon(true);
+	}
+	
+	/**
+	 * Starts migrating on a background thread.
+	 */
+	public void start()
+	{
+		this.thread.start();
+	}
+	
+	/**
+	 * Waits until every bucket has been migrated.
+	 * 
+	 * @return the new directory, which may be used directly from now on.
+	 * @throws InterruptedException when interrupted while waiting.
+	 */
+	public Directory await() throws InterruptedException
+	{
+		this.thread.join();
+		if (this.failure != null)
+			throw this.failure;
+		return this.to;
+	}
+	
+	public void run()
+	{
+		try {
+			// Yield between buckets so waiting writers get the lock.
+			while (migrateNext())
+				Thread.yield();
+		}
+		catch (RuntimeException re) {
+			ErrorLogger.logException("DirectoryMigration.run(void)",
+									 "Migration stopped at pseudokey " + Long.toHexString(this.cursor),
+									 re);
+			this.failure = re;
+		}
+	}
+	
+	/**
+	 * Migrates the next old bucket.
+	 * 
+	 * @return true if there are buckets left to migrate.
+	 */
+	public boolean migrateNext()
+	{
+		this.lock.writeLock().lock();
+		try {
+			if (this.from == null)
+				return false;
+			
+			int depth = this.from.getDepth();
+			int key = BitUtility.getLeftMostBits((int) this.cursor, depth);
+			int aliases = 1 << (depth - this.from.getBucket(key).getDepth());
+			int next = (key & ~(aliases - 1)) + aliases;
+			
+			List<String> words = this.from.drain(key);
+			this.to.insertAll(words);
+			this.cursor = (depth == 0) ? END : (long) next << (32 - depth);
+			
+			if (this.cursor == END)
+				this.from = null;
+			return this.from != null;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Gets how far the migration has gone.
+	 * 
+	 * @return the fraction of the old pseudokey space migrated so far.
+	 */
+	public double getProgress()
+	{
+		return (double) this.cursor / END;
+	}
+	
+	/**
+	 * Searches for value in whichever directory holds it.
+	 * 
+	 * @param value The string to search for
+	 * @return true if value is in the table, false otherwise.
+	 */
+	public boolean contains(String value)
+	{
+		this.lock.readLock().lock();
+		try {
+			return route(value).contains(value);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Inserts a value into whichever directory holds its pseudokey range.
+	 * 
+	 * @param value Value to insert.
+	 */
+	public void insert(String value)
+	{
+		this.lock.writeLock().lock();
+		try {
+			route(value).insert(value);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Inserts a value into whichever directory holds its pseudokey range, unless it is there.
+	 * 
+	 * @param value Value to insert.
+	 * @return true if value was inserted, false if it was already present.
+	 */
+	public boolean insertIfAbsent(String value)
+	{
+		this.lock.writeLock().lock();
+		try {
+			return route(value).insertIfAbsent(value);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes a value from whichever directory holds it.
+	 * 
+	 * @param value Value to remove.
+	 * @return true if value was in the table, false otherwise.
+	 */
+	public boolean remove(String value)
+	{
+		this.lock.writeLock().lock();
+		try {
+			return route(value).remove(value);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Gets the directory holding value, by comparing its old pseudokey to the cursor.
+	 * 
+	 * @param value Value being looked up or changed.
+	 * @return the new directory if value has been migrated, the old one otherwise.
+	 */
+	private Directory route(String value)
+	{
+		if (this.from == null || Integer.toUnsignedLong(this.oldHasher.hash(value)) < this.cursor)
+			return this.to;
+		return this.from;
+	}
+}
@@ -0,0 +1,134 @@
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * .DirectorySnapshot.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A frozen view of a Directory at the moment it was taken, for consistent scans while writers
+ * keep changing the directory.
+ *
+ * The snapshot holds the directory table as it was. Writers copy every bucket a snapshot can
+ * still see before changing it, and copy the table before changing its entries, so nothing the
+ * snapshot reads ever changes. Closing the snapshot lets writers change buckets in place again,
+ * and lets the old bucket versions it held be garbage collected.
+ */
+public class DirectorySnapshot implements Iterable<String>, AutoCloseable
+{
+	private Directory d;
+	private Bucket[] directory;	/* null once the snapshot is closed */
+	private int depth;
+	private long epoch;
+	
+	/**
+	 * Constructs a snapshot of a directory.
+	 * 
+	 * @param d the directory the snapshot was taken of.
+	 * @param directory the directory table, which is never changed while the snapshot is open.
+	 * @param depth the global depth of the directory.
+	 * @param epoch the epoch the snapshot was taken at.
+	 */
+	DirectorySnapshot(Directory d, Bucket[] directory, int depth, long epoch)
+	{
+		this.d = d;
+		this.directory = directory;
+		this.depth = depth;
+		this.epoch = epoch;
+	}
+	
+	/**
+	 * Gets the epoch the snapshot was taken at. Snapshots taken later have larger epochs.
+	 * 
+	 * @return the epoch of the snapshot.
+	 */
+	public long getEpoch()
+	{
+		return this.epoch;
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	/**
+	 * Searches the snapshot for value. Bloom filters are not used, since writers keep adding to
+	 * the filters of buckets they copied.
+	 * 
+	 * @param value The string to search for
+	 * @return true if value was in the directory when the snapshot was taken, false otherwise.
+	 */
+	public boolean contains(String value)
+	{
+		int key = BitUtility.getLeftMostBits(this.d.getHasher().hash(value), this.depth);
+		return getDirectory()[key].search(value) >= 0;
+	}
+	
+	/**
+	 * Returns an iterator over every value in the snapshot. Each bucket is visited once, in
+	 * directory order.
+	 * 
+	 * @return an iterator over every value.
+	 */
+	public Iterator<String> iterator()
+	{
+		return Spliterators.iterator(spliterator());
+	}
+	
+	/**
+	 * Returns a Spliterator over every value in the snapshot that splits along bucket boundaries.
+	 * 
+	 * @return a Spliterator over every value.
+	 */
+	public Spliterator<String> spliterator()
+	{
+		Bucket[] buckets = getDirectory();
+		return new DirectorySpliterator(buckets, this.depth, 0, buckets.length, null);
+	}
+	
+	/**
+	 * Returns a sequential Stream over every value in the snapshot.
+	 * 
+	 * @return a Stream over every value.
+	 */
+	public Stream<String> stream()
+	{
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel Stream over every value in the snapshot. Unlike the directory's, it may
+	 * be used while the directory is being changed.
+	 * 
+	 * @return a parallel Stream over every value.
+	 */
+	public Stream<String> parallelStream()
+	{
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * Releases the snapshot. Iterators and streams already returned must no longer be used.
+	 */
+	public void close()
+	{
+		if (this.directory == null)
+			return;
+		
+		this.directory = null;
+		this.d.closeSnapshot(this.epoch);
+	}
+	
+	private Bucket[] getDirectory()
+	{
+		if (this.directory == null)
+			throw new IllegalStateException("Snapshot at epoch " + this.epoch + " is closed");
+		return this.directory;
+	}
+}
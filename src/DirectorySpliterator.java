@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * .DirectorySpliterator.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Traverses every word in a range of directory entries. Each distinct bucket is visited exactly
+ * once by jumping over the 2^(global depth - local depth) entries that reference it, and the
+ * range splits along bucket boundaries so parallel streams never share a bucket.
+ */
+public class DirectorySpliterator implements Spliterator<String>
+{
+	private Bucket[] directory;
+	private int depth;
+	private BufferPool pool;	/* null if every bucket stays in memory */
+	
+	private int index;			/* always the first directory entry referencing a bucket */
+	private int end;
+	
+	private List<String> words;	/* words of the last bucket visited that have not been consumed */
+	private int nextWord;
+	
+	/**
+	 * Constructs a DirectorySpliterator over directory[index..end).
+	 * 
+	 * @param directory the directory table.
+	 * @param depth the global depth of the directory.
+	 * @param index the first entry to visit. Must be the first entry referencing its bucket.
+	 * @param end the entry after the last entry to visit.
+	 * @param pool the pool holding bucket contents in memory, or null if there is none.
+	 */
+	public DirectorySpliterator(Bucket[] directory, int depth, int index, int end, BufferPool pool)
+	{
+		this.directory = directory;
+		this.depth = depth;
+		this.pool = pool;
+		this.index = index;
+		this.end = end;
+		this.words = new ArrayList<String>();
+		this.nextWord = 0;
+	}
+	
+	public boolean tryAdvance(Consumer<? super String> action)
+	{
+		while (this.nextWord == this.words.size()) {
+			if (this.index >= this.end)
+				return false;
+			
+			this.words.clear();
+			this.nextWord = 0;
+			this.index = nextBucket(this.index, this.words);
+		}
+		
+		action.accept(this.words.get(this.nextWord++));
+		return true;
+	}
+	
+	public void forEachRemaining(Consumer<? super String> action)
+	{
+		while (this.nextWord < this.words.size())
+			action.accept(this.words.get(this.nextWord++));
+		
+		while (this.index < this.end) {
+			this.words.clear();
+			this.index = nextBucket(this.index, this.words);
+			for (String word : this.words)
+				action.accept(word);
+		}
+		this.words.clear();
+		this.nextWord = 0;
+	}
+	
+	public Spliterator<String> trySplit()
+	{
+		// Only split between buckets so the prefix handed off is entirely ahead of this one.
+		if (this.nextWord < this.words.size())
+			return null;
+		
+		int mid = (this.index + this.end) >>> 1;
+		int aliases = 1 << (this.depth - this.directory[mid].getDepth());
+		int split = mid & ~(aliases - 1);
+		if (split <= this.index)
+			split += aliases;
+		if (split >= this.end)
+			return null;
+		
+		Spliterator<String> prefix = new DirectorySpliterator(this.directory, this.depth, this.index, split, this.pool);
+		this.index = split;
+		return prefix;
+	}
+	
+	public long estimateSize()
+	{
+		return (this.end - this.index) + (this.words.size() - this.nextWord);
+	}
+	
+	public int characteristics()
+	{
+		return Spliterator.ORDERED | Spliterator.NONNULL;
+	}
+	
+	/**
+	 * Decodes the words of the bucket at a directory entry.
+	 * 
+	 * @param i the first directory entry referencing the bucket.
+	 * @param words List to add the words of the bucket to.
+	 * @return the first directory entry referencing the next bucket.
+	 */
+	private int nextBucket(int i, List<String> words)
+	{
+		Bucket b = this.directory[i];
+		if (this.pool != null) {
+			this.pool.pin(b);
+			b.getWords(words);
+			this.pool.unpin(b, false);
+		}
+		else {
+			b.getWords(words);
+		}
+		return i + (1 << (this.depth - b.getDepth()));
+	}
+}
@@ -0,0 +1,26 @@
+/**
+ * .Durability.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * How far the changes made by an operation must reach before the operation returns.
+ */
+public enum Durability 
+{
+	/** Return as soon as the change is made in memory. Dirty buckets are written back later. */
+	NONE,
+	
+	/** 
+	 * Return once every bucket changed so far has been written to the store's file, so 
+	 * Directory.open finds the changes if the process stops. 
+	 */
+	FLUSHED,
+	
+	/** 
+	 * Return once every bucket changed so far has been written and forced to disk, so 
+	 * Directory.open finds the changes even if the machine stops. 
+	 */
+	FSYNCED
+}
@@ -0,0 +1,493 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * .FrontCodedBucket.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A bucket of strings for FrontCodedSet. Keys are kept in lexicographic order, and each key only
+ * stores the part that differs from the key before it, so keys sharing long prefixes take far
+ * less room than in a Bucket.
+ *
+ * Keys are grouped into blocks, and the first key of every block is stored in full. Those restart
+ * points are binary searched to find the only block that may hold a key, and only that block is
+ * scanned. A scan never rebuilds the keys it passes: it only compares the suffixes that differ
+ * from the key being searched for, so lookups allocate nothing.
+ *
+ * Restart points are not a fixed number of keys apart. A split writes both halves in blocks of
+ * RESTART_INTERVAL keys, an insert that brings a block to twice that halves it, and removes
+ * shrink blocks, so a block holds anywhere from 1 to 2 * RESTART_INTERVAL - 1 keys.
+ */
+public class FrontCodedBucket
+{
+	//          +------------------------------------------------+
+	// data =   | ENTRY | ENTRY | ENTRY | ... |   <empty cells>   |
+	//          +------------------------------------------------+
+	//
+	// ENTRY is the length of the prefix shared with the previous key, the length of the suffix,
+	// then the suffix. The first entry of a block shares nothing.
+	// Ex: [ 0,5,a,p,p,l,e, 4,1,y, 1,4,r,i,c,h, ... ] holds apple, apply, arich
+	private char[] data;
+	private int used;
+	
+	// Blocks have between 1 and 2 * RESTART_INTERVAL - 1 keys, and are halved when they reach it.
+	private static final int RESTART_INTERVAL = 16;
+	
+	private int[] restarts;		/* offset in data of the first entry of each block */
+	private int[] blockSizes;	/* number of keys in each block */
+	private int numBlocks;
+	private int size;
+	
+	private int depth;
+	private int bitPattern;
+	
+	/**
+	 * Constructs a new bucket.
+	 * 
+	 * @param capacity the maximum size of the bucket, counting 2 chars for each restart point.
+	 */
+	public FrontCodedBucket(int capacity)
+	{
+		this.data = new char[capacity];
+		this.used = 0;
+		this.restarts = new int[4];
+		this.blockSizes = new int[4];
+		this.numBlocks = 0;
+		this.size = 0;
+		this.depth = 0;
+		this.bitPattern = -1;
+	}
+	
+	/**
+	 * Creates an empty FrontCodedBucket with the state of the input FrontCodedBucket.
+	 * 
+	 * @param b bucket to copy state, but not the keys.
+	 */
+	public FrontCodedBucket(FrontCodedBucket b)
+	{
+		this(b.data.length);
+		this.depth = b.depth;
+		this.bitPattern = b.bitPattern;
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	public int getBitPattern()
+	{
+		return this.bitPattern;
+	}
+	
+	public int getSize()
+	{
+		return this.size;
+	}
+	
+	public int getCapacity()
+	{
+		return this.data.length;
+	}
+	
+	/**
+	 * Gets the room left in the bucket.
+	 * 
+	 * @return the number of chars not used by entries or restart points.
+	 */
+	public int getRemainingSize()
+	{
+		return this.data.length - this.used - 2 * this.numBlocks;
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 0.
+	 */
+	public void incDepth0()
+	{
+		this.depth++;
+		this.bitPattern = (this.bitPattern == -1) ? 0 : BitUtility.append0(this.bitPattern);
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 1.
+	 */
+	public void incDepth1()
+	{
+		this.depth++;
+		this.bitPattern = (this.bitPattern == -1) ? 1 : BitUtility.append1(this.bitPattern);
+	}
+	
+	/**
+	 * Searches for a key in the bucket.
+	 * 
+	 * @param key The key to search for.
+	 * @return true if key is in the bucket, false otherwise.
+	 */
+	public boolean contains(String key)
+	{
+		return search(key) > 0;
+	}
+	
+	/**
+	 * Searches for the given key in the bucket, and counts the number of probes. The binary 
+	 * search over restart points counts as one probe, and every entry compared in the block 
+	 * after it as another.
+	 * 
+	 * @param key The key to search for.
+	 * @return The number of probes to find key, or -1 if it is not in the bucket.
+	 */
+	public int countProbes(String key)
+	{
+		int entries = search(key);
+		return (entries > 0) ? entries + 1 : -1;
+	}
+	
+	/**
+	 * Scans the only block that may hold a key.
+	 * 
+	 * @param key The key to search for.
+	 * @return the number of entries compared to find key, or -1 if it is not in the bucket.
+	 */
+	private int search(String key)
+	{
+		if (this.numBlocks == 0)
+			return -1;
+		
+		int block = findBlock(key);
+		int offset = this.restarts[block];
+		int end = (block + 1 < this.numBlocks) ? this.restarts[block + 1] : this.used;
+		
+		// Number of leading chars the key shares with the entry before the current one, which is
+		// always smaller than the key.
+		int matched = 0;
+		int entries = 0;
+		while (offset < end) {
+			entries++;
+			int shared = this.data[offset];
+			int length = this.data[offset + 1];
+			int suffix = offset + 2;
+			
+			// Sharing less with the previous entry than the key does puts the entry past the key.
+			if (shared < matched)
+				return -1;
+			
+			// Sharing more puts it between the previous entry and the key, so only an equal
+			// prefix needs its suffix compared.
+			if (shared == matched) {
+				int i = 0;
+				while (i < length && matched + i < key.length() && this.data[suffix + i] == key.charAt(matched + i))
+					i++;
+				
+				if (matched + i == key.length())
+					return (i == length) ? entries : -1;
+				if (i < length && this.data[suffix + i] > key.charAt(matched + i))
+					return -1;
+				matched += i;
+			}
+			
+			offset = suffix + length;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Inserts a key that is not already in the bucket.
+	 * 
+	 * @param key Key to insert.
+	 * @return true if the key was inserted, false if there is not enough room to insert.
+	 */
+	public boolean insert(String key)
+	{
+		if (this.numBlocks == 0) {
+			List<String> keys = new ArrayList<String>();
+			keys.add(key);
+			if (encodedLength(keys, 0, 1) + 2 > this.data.length)
+				return false;
+			
+			load(keys);
+			return true;
+		}
+		
+		// Only the block the key falls in is decoded and written again.
+		int block = findBlock(key);
+		int start = this.restarts[block];
+		int end = (block + 1 < this.numBlocks) ? this.restarts[block + 1] : this.used;
+		
+		List<String> keys = new ArrayList<String>();
+		decodeBlock(block, keys);
+		keys.add(-(Collections.binarySearch(keys, key) + 1), key);
+		
+		int half = (keys.size() == 2 * RESTART_INTERVAL) ? RESTART_INTERVAL : keys.size();
+		int newLength = encodedLength(keys, 0, half) + encodedLength(keys, half, keys.size());
+		int newBlocks = this.numBlocks + ((half < keys.size()) ? 1 : 0);
+		if (this.used - (end - start) + newLength + 2 * newBlocks > this.data.length)
+			return false;
+		
+		int delta = newLength - (end - start);
+		System.arraycopy(this.data, end, this.data, end + delta, this.used - end);
+		this.used += delta;
+		for (int i = block + 1; i < this.numBlocks; i++)
+			this.restarts[i] += delta;
+		
+		int offset = writeBlock(keys, 0, half, start);
+		this.blockSizes[block] = half;
+		if (half < keys.size()) {
+			insertRestart(block + 1, offset, keys.size() - half);
+			writeBlock(keys, half, keys.size(), offset);
+		}
+		
+		this.size++;
+		return true;
+	}
+	
+	/**
+	 * Removes a key from the bucket.
+	 * 
+	 * @param key Key to remove.
+	 * @return true if the key was in the bucket, false otherwise.
+	 */
+	public boolean remove(String key)
+	{
+		if (! contains(key))
+			return false;
+		
+		// Only the block the key is in is decoded and written again. Dropping an entry always
+		// saves more than the next entry loses from sharing a shorter prefix, so it fits in place.
+		int block = findBlock(key);
+		int start = this.restarts[block];
+		int end = (block + 1 < this.numBlocks) ? this.restarts[block + 1] : this.used;
+		
+		List<String> keys = new ArrayList<String>();
+		decodeBlock(block, keys);
+		keys.remove(Collections.binarySearch(keys, key));
+		
+		int newEnd = writeBlock(keys, 0, keys.size(), start);
+		int delta = newEnd - end;
+		System.arraycopy(this.data, end, this.data, newEnd, this.used - end);
+		this.used += delta;
+		for (int i = block + 1; i < this.numBlocks; i++)
+			this.restarts[i] += delta;
+		
+		if (keys.isEmpty())
+			removeRestart(block);
+		else
+			this.blockSizes[block] = keys.size();
+		
+		this.size--;
+		return true;
+	}
+	
+	/**
+	 * Doubles the capacity of the bucket. Only used once the directory cannot grow any deeper.
+	 */
+	public void grow()
+	{
+		this.data = Arrays.copyOf(this.data, this.data.length * 2);
+	}
+	
+	/**
+	 * Moves every key whose pseudokey does not start with bitPattern into b.
+	 * 
+	 * @param b Bucket to move keys that do not fit the bitPattern filter.
+	 * @param bitPattern Filter.
+	 * @param h Hasher computing the pseudokeys.
+	 */
+	public void filter(FrontCodedBucket b, int bitPattern, Hasher<String> h)
+	{
+		List<String> keys = new ArrayList<String>(this.size);
+		for (int i = 0; i < this.numBlocks; i++)
+			decodeBlock(i, keys);
+		
+		// Keys stay sorted on both sides, so each side is written again from scratch.
+		List<String> kept = new ArrayList<String>();
+		List<String> moved = new ArrayList<String>();
+		for (String key : keys) {
+			if (BitUtility.getLeftMostBits(h.hash(key), this.depth) == bitPattern)
+				kept.add(key);
+			else
+				moved.add(key);
+		}
+		load(kept);
+		b.load(moved);
+	}
+	
+	/**
+	 * Copies every key in the bucket into an array, in lexicographic order.
+	 * 
+	 * @param out Array to copy the keys into.
+	 * @param offset Position in out of the first key.
+	 * @return the position in out after the last key.
+	 */
+	public int copyKeys(String[] out, int offset)
+	{
+		List<String> keys = new ArrayList<String>(this.size);
+		for (int i = 0; i < this.numBlocks; i++)
+			decodeBlock(i, keys);
+		for (String key : keys)
+			out[offset++] = key;
+		return offset;
+	}
+	
+	/**
+	 * Finds the block that may hold a key: the last one whose first key is not after it.
+	 * 
+	 * @param key The key to search for.
+	 * @return the index of the block, or 0 if the key is before every block.
+	 */
+	private int findBlock(String key)
+	{
+		int left = 0;
+		int right = this.numBlocks - 1;
+		while (left < right) {
+			int mid = (left + right + 1) >>> 1;
+			if (compareRestart(key, mid) >= 0)
+				left = mid;
+			else
+				right = mid - 1;
+		}
+		return left;
+	}
+	
+	/**
+	 * Compares a key to the first key of a block, which is stored in full.
+	 * 
+	 * @return a negative number, zero, or a positive number as key is before, equal to, or after
+	 * the first key of the block.
+	 */
+	private int compareRestart(String key, int block)
+	{
+		int offset = this.restarts[block];
+		int length = this.data[offset + 1];
+		int n = Math.min(length, key.length());
+		for (int i = 0; i < n; i++) {
+			int c = key.charAt(i) - this.data[offset + 2 + i];
+			if (c != 0)
+				return c;
+		}
+		return key.length() - length;
+	}
+	
+	/**
+	 * Rebuilds every key of a block.
+	 * 
+	 * @param block Index of the block.
+	 * @param keys List to add the keys to.
+	 */
+	private void decodeBlock(int block, List<String> keys)
+	{
+		int offset = this.restarts[block];
+		char[] key = new char[0];
+		for (int i = 0; i < this.blockSizes[block]; i++) {
+			int shared = this.data[offset];
+			int length = this.data[offset + 1];
+			key = Arrays.copyOf(key, shared + length);
+			System.arraycopy(this.data, offset + 2, key, shared, length);
+			keys.add(new String(key));
+			offset += 2 + length;
+		}
+	}
+	
+	/**
+	 * Replaces the contents of the bucket with sorted keys, in full blocks. Half of a split
+	 * bucket may lose the prefixes it shared with the other half, in which case the bucket grows
+	 * to hold it.
+	 * 
+	 * @param keys Keys in lexicographic order.
+	 */
+	private void load(List<String> keys)
+	{
+		this.used = 0;
+		this.numBlocks = 0;
+		this.size = keys.size();
+		
+		int needed = 0;
+		for (int from = 0; from < keys.size(); from += RESTART_INTERVAL)
+			needed += encodedLength(keys, from, Math.min(keys.size(), from + RESTART_INTERVAL)) + 2;
+		if (needed > this.data.length)
+			this.data = new char[needed];
+		
+		for (int from = 0; from < keys.size(); from += RESTART_INTERVAL) {
+			int to = Math.min(keys.size(), from + RESTART_INTERVAL);
+			insertRestart(this.numBlocks, this.used, to - from);
+			this.used = writeBlock(keys, from, to, this.used);
+		}
+	}
+	
+	/**
+	 * Adds a restart point.
+	 * 
+	 * @param block Index of the new block.
+	 * @param offset Offset in data of the first entry of the block.
+	 * @param count Number of keys in the block.
+	 */
+	private void insertRestart(int block, int offset, int count)
+	{
+		if (this.numBlocks == this.restarts.length) {
+			this.restarts = Arrays.copyOf(this.restarts, this.numBlocks * 2);
+			this.blockSizes = Arrays.copyOf(this.blockSizes, this.numBlocks * 2);
+		}
+		System.arraycopy(this.restarts, block, this.restarts, block + 1, this.numBlocks - block);
+		System.arraycopy(this.blockSizes, block, this.blockSizes, block + 1, this.numBlocks - block);
+		this.restarts[block] = offset;
+		this.blockSizes[block] = count;
+		this.numBlocks++;
+	}
+	
+	/**
+	 * Removes the restart point of an empty block.
+	 * 
+	 * @param block Index of the block.
+	 */
+	private void removeRestart(int block)
+	{
+		System.arraycopy(this.restarts, block + 1, this.restarts, block, this.numBlocks - block - 1);
+		System.arraycopy(this.blockSizes, block + 1, this.blockSizes, block, this.numBlocks - block - 1);
+		this.numBlocks--;
+	}
+	
+	/**
+	 * Writes keys[from..to) as a block.
+	 * 
+	 * @return the offset in data after the block.
+	 */
+	private int writeBlock(List<String> keys, int from, int to, int offset)
+	{
+		for (int i = from; i < to; i++) {
+			String key = keys.get(i);
+			int shared = (i == from) ? 0 : sharedPrefix(keys.get(i - 1), key);
+			this.data[offset++] = (char) shared;
+			this.data[offset++] = (char) (key.length() - shared);
+			key.getChars(shared, key.length(), this.data, offset);
+			offset += key.length() - shared;
+		}
+		return offset;
+	}
+	
+	/**
+	 * Gets the number of chars keys[from..to) take as a block, not counting its restart point.
+	 */
+	private static int encodedLength(List<String> keys, int from, int to)
+	{
+		int length = 0;
+		for (int i = from; i < to; i++) {
+			int shared = (i == from) ? 0 : sharedPrefix(keys.get(i - 1), keys.get(i));
+			length += 2 + keys.get(i).length() - shared;
+		}
+		return length;
+	}
+	
+	private static int sharedPrefix(String a, String b)
+	{
+		int n = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < n && a.charAt(i) == b.charAt(i))
+			i++;
+		return i;
+	}
+}
@@ -0,0 +1,275 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * .FrontCodedSet.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A set of strings using Extendible Hashing. Works like Directory, but keys are stored in
+ * FrontCodedBuckets, so keys sharing long prefixes (URLs, paths) fit many more to a bucket and
+ * the directory stays shallower. Implements HashIndex so DirectoryBenchmark and Workload can 
+ * compare it with the other engines.
+ */
+public class FrontCodedSet implements HashIndex
+{
+	private FrontCodedBucket[] directory;
+	private int depth;			/* max depth is 30 since depth=31 overflows an int data type */
+	private int size;
+	private long splits;
+	private long expands;
+	
+	private Hasher<String> h;
+	
+	/**
+	 * Constructs a FrontCodedSet with a starting length of 1 and depth of 0.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 */
+	public FrontCodedSet(int bucketSizeInBytes)
+	{
+		this(bucketSizeInBytes, StringHasher.getInstance());
+	}
+	
+	/**
+	 * Constructs a FrontCodedSet that maps keys to pseudokeys with the given hasher.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param h the hasher used to compute pseudokeys.
+	 */
+	public FrontCodedSet(int bucketSizeInBytes, Hasher<String> h)
+	{
+		this.directory = new FrontCodedBucket[] {new FrontCodedBucket(bucketSizeInBytes)};
+		this.depth = 0;
+		this.size = 0;
+		this.h = h;
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	public int getLength()
+	{
+		return this.directory.length;
+	}
+	
+	public long getSplitCount()
+	{
+		return this.splits;
+	}
+	
+	public long getExpandCount()
+	{
+		return this.expands;
+	}
+	
+	public int getBucketCount()
+	{
+		int count = 0;
+		for (int i = 0; i < this.directory.length; i += 1 << (this.depth - this.directory[i].getDepth()))
+			count++;
+		return count;
+	}
+	
+	public String getStats()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("frontcoded_depth ").append(this.depth).append('\n');
+		sb.append("frontcoded_keys ").append(this.size).append('\n');
+		sb.append("frontcoded_buckets ").append(getBucketCount()).append('\n');
+		sb.append("frontcoded_splits ").append(this.splits).append('\n');
+		sb.append("frontcoded_expands ").append(this.expands).append('\n');
+		sb.append("frontcoded_bytes ").append(getSizeInBytes()).append('\n');
+		return sb.toString();
+	}
+	
+	/**
+	 * Gets the number of keys in the set.
+	 * 
+	 * @return the number of keys.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Gets the memory taken by the directory table and the buckets.
+	 * 
+	 * @return the number of bytes used, counting directory references as compressed oops.
+	 */
+	public long getSizeInBytes()
+	{
+		long bytes = (long) this.directory.length * Integer.BYTES;
+		for (int i = 0; i < this.directory.length; i += 1 << (this.depth - this.directory[i].getDepth()))
+			bytes += (long) this.directory[i].getCapacity() * Character.BYTES;
+		return bytes;
+	}
+	
+	/**
+	 * Adds a key to the set.
+	 * 
+	 * @param key Key to add.
+	 * @return true if the key was added, false if it was already in the set.
+	 */
+	public boolean add(String key)
+	{
+		// An empty bucket must hold the key, its two lengths and a restart point.
+		if (key.length() + 4 > this.directory[0].getCapacity() || key.length() > Character.MAX_VALUE)
+			throw new IllegalArgumentException("Key of length " + key.length() + " does not fit in a bucket");
+		
+		int pseudokey = this.h.hash(key);
+		int index = BitUtility.getLeftMostBits(pseudokey, this.depth);
+		FrontCodedBucket b = this.directory[index];
+		if (b.contains(key))
+			return false;
+		
+		while (! b.insert(key)) {
+			if (this.depth > b.getDepth())
+				split(b);
+			else if (this.depth < Directory.MAX_DEPTH)
+				expand(index);
+			else
+				b.grow();
+			
+			index = BitUtility.getLeftMostBits(pseudokey, this.depth);
+			b = this.directory[index];
+		}
+		
+		this.size++;
+		return true;
+	}
+	
+	public void insert(String value)
+	{
+		add(value);
+	}
+	
+	public void insertAll(List<String> values)
+	{
+		for (String value : values)
+			add(value);
+	}
+	
+	public boolean insertIfAbsent(String value)
+	{
+		return add(value);
+	}
+	
+	/**
+	 * Searches for key.
+	 * 
+	 * @param key The key to search for.
+	 * @return true if key is in the set, false otherwise.
+	 */
+	public boolean contains(String key)
+	{
+		return bucketOf(key).contains(key);
+	}
+	
+	public boolean[] containsAll(List<String> values)
+	{
+		boolean[] found = new boolean[values.size()];
+		for (int i = 0; i < found.length; i++)
+			found[i] = contains(values.get(i));
+		return found;
+	}
+	
+	/**
+	 * Removes a key. Buckets are never merged, so the directory does not shrink.
+	 * 
+	 * @param key Key to remove.
+	 * @return true if the key was in the set, false otherwise.
+	 */
+	public boolean remove(String key)
+	{
+		if (! bucketOf(key).remove(key))
+			return false;
+		
+		this.size--;
+		return true;
+	}
+	
+	public int countProbes(String key)
+	{
+		return bucketOf(key).countProbes(key);
+	}
+	
+	/**
+	 * Returns an iterator over a copy of the keys, taken when it is created.
+	 */
+	public Iterator<String> iterator()
+	{
+		return Arrays.asList(toArray()).iterator();
+	}
+	
+	/**
+	 * Copies every key in the set into an array, bucket by bucket in directory order.
+	 * 
+	 * @return the keys of the set.
+	 */
+	public String[] toArray()
+	{
+		String[] keys = new String[this.size];
+		int offset = 0;
+		for (int i = 0; i < this.directory.length; i += 1 << (this.depth - this.directory[i].getDepth()))
+			offset = this.directory[i].copyKeys(keys, offset);
+		return keys;
+	}
+	
+	/**
+	 * Gets the bucket a key is addressed to.
+	 * 
+	 * @param key The key.
+	 * @return the bucket that holds key if it is in the set.
+	 */
+	private FrontCodedBucket bucketOf(String key)
+	{
+		return this.directory[BitUtility.getLeftMostBits(this.h.hash(key), this.depth)];
+	}
+	
+	/**
+	 * Splits a full bucket that is referenced by more than one directory entry.
+	 * 
+	 * @param b The full bucket.
+	 */
+	private void split(FrontCodedBucket b)
+	{
+		FrontCodedBucket b2 = new FrontCodedBucket(b);
+		b2.incDepth1();
+		b.incDepth0();
+		b.filter(b2, b.getBitPattern(), this.h);
+		
+		// Entries referencing b are adjacent, and the second half of them now references b2.
+		int aliasBits = this.depth - b.getDepth();
+		int start = b2.getBitPattern() << aliasBits;
+		for (int i = 0; i < (1 << aliasBits); i++)
+			this.directory[start + i] = b2;
+		
+		this.splits++;
+	}
+	
+	/**
+	 * Doubles the size of the directory, increments depth, and splits the full bucket.
+	 * 
+	 * @param fullBucketIndex The index of the directory entry referencing a full bucket.
+	 */
+	private void expand(int fullBucketIndex)
+	{
+		FrontCodedBucket[] newDirectory = new FrontCodedBucket[this.directory.length * 2];
+		for (int i = 0; i < this.directory.length; i++) {
+			newDirectory[i*2] = this.directory[i];
+			newDirectory[i*2 + 1] = this.directory[i];
+		}
+		
+		this.directory = newDirectory;
+		this.depth++;
+		this.expands++;
+		split(this.directory[fullBucketIndex*2]);
+	}
+}
@@ -0,0 +1,117 @@
+import java.util.List;
+
+/**
+ * .HashIndex.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Implemented by hash indexes of strings, so drivers like DirectoryBenchmark and Workload can run
+ * the same operations against different hashing schemes.
+ */
+public interface HashIndex extends Iterable<String>
+{
+	/**
+	 * Inserts a value.
+	 * 
+	 * @param value Value to insert.
+	 */
+	public void insert(String value);
+	
+	/**
+	 * Inserts a batch of values.
+	 * 
+	 * @param values Values to insert.
+	 */
+	public void insertAll(List<String> values);
+	
+	/**
+	 * Inserts a value unless it is already in the index, with a single search of its bucket.
+	 * 
+	 * @param value Value to insert.
+	 * @return true if value was inserted, false if it was already in the index.
+	 */
+	public boolean insertIfAbsent(String value);
+	
+	/**
+	 * Searches for value.
+	 * 
+	 * @param value The string to search for
+	 * @return true if value is in the index, false otherwise.
+	 */
+	public boolean contains(String value);
+	
+	/**
+	 * Searches for every value in a batch.
+	 * 
+	 * @param values The strings to search for.
+	 * @return whether each value is in the index, in the order of values.
+	 */
+	public boolean[] containsAll(List<String> values);
+	
+	/**
+	 * Removes a value.
+	 * 
+	 * @param value Value to remove.
+	 * @return true if value was in the index, false otherwise.
+	 */
+	public boolean remove(String value);
+	
+	/**
+	 * Searches for value and counts the number of probes along the way.
+	 * 
+	 * @param value The string to search for
+	 * @return the number of probes to find value, or -1 if it is not in the index.
+	 */
+	public int countProbes(String value);
+	
+	/**
+	 * Gets the number of hash bits used to address most buckets.
+	 * 
+	 * @return the depth of the index.
+	 */
+	public int getDepth();
+	
+	/**
+	 * Gets the number of addresses the index maps pseudokeys to.
+	 * 
+	 * @return the length of the index's table.
+	 */
+	public int getLength();
+	
+	/**
+	 * Gets the number of buckets split since the index was created.
+	 * 
+	 * @return the number of splits.
+	 */
+	public long getSplitCount();
+	
+	/**
+	 * Gets the number of times the index's address space has doubled since it was created.
+	 * 
+	 * @return the number of doublings.
+	 */
+	public long getExpandCount();
+	
+	/**
+	 * Gets the number of buckets addressed by the index, not counting chained buckets.
+	 * 
+	 * @return the number of buckets.
+	 */
+	public int getBucketCount();
+	
+	/**
+	 * Gets the memory taken by the index's table and the contents of its buckets in memory.
+	 * 
+	 * @return the number of bytes used, counting table references as compressed oops.
+	 */
+	public long getSizeInBytes();
+	
+	/**
+	 * Gets the counters and gauges of the index.
+	 * 
+	 * @return one "name value" line per value.
+	 */
+	public String getStats();
+}
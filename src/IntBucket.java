@@ -0,0 +1,150 @@
+import java.util.Arrays;
+
+/**
+ * .IntBucket.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A bucket of int keys for IntExtendibleSet. Keys are kept sorted in a fixed-width slot array, so 
+ * there is no length header and a lookup is a binary search.
+ */
+public class IntBucket
+{
+	private int[] keys;
+	private int size;
+	
+	private int depth;
+	private int bitPattern;
+	
+	/**
+	 * Constructs a new bucket.
+	 * 
+	 * @param capacity the number of keys the bucket holds.
+	 */
+	public IntBucket(int capacity)
+	{
+		this.keys = new int[capacity];
+		this.size = 0;
+		this.depth = 0;
+		this.bitPattern = -1;
+	}
+	
+	/**
+	 * Creates an empty IntBucket with the state of the input IntBucket.
+	 * 
+	 * @param b bucket to copy state, but not the keys.
+	 */
+	public IntBucket(IntBucket b)
+	{
+		this.keys = new int[b.keys.length];
+		this.size = 0;
+		this.depth = b.depth;
+		this.bitPattern = b.bitPattern;
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	public int getBitPattern()
+	{
+		return this.bitPattern;
+	}
+	
+	public int getSize()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 0.
+	 */
+	public void incDepth0()
+	{
+		this.depth++;
+		this.bitPattern = (this.bitPattern == -1) ? 0 : BitUtility.append0(this.bitPattern);
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 1.
+	 */
+	public void incDepth1()
+	{
+		this.depth++;
+		this.bitPattern = (this.bitPattern == -1) ? 1 : BitUtility.append1(this.bitPattern);
+	}
+	
+	/**
+	 * Searches for a key in the bucket.
+	 * 
+	 * @param key The key to search for.
+	 * @return true if key is in the bucket, false otherwise.
+	 */
+	public boolean contains(int key)
+	{
+		return Arrays.binarySearch(this.keys, 0, this.size, key) >= 0;
+	}
+	
+	/**
+	 * Inserts a key that is not already in the bucket.
+	 * 
+	 * @param key Key to insert.
+	 * @return true if the key was inserted, false if the bucket is full.
+	 */
+	public boolean insert(int key)
+	{
+		if (this.size == this.keys.length)
+			return false;
+		
+		int index = -(Arrays.binarySearch(this.keys, 0, this.size, key) + 1);
+		System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+		this.keys[index] = key;
+		this.size++;
+		return true;
+	}
+	
+	/**
+	 * Doubles the capacity of the bucket. Only used once the directory cannot grow any deeper.
+	 */
+	public void grow()
+	{
+		this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+	}
+	
+	/**
+	 * Moves every key whose pseudokey does not start with bitPattern into b.
+	 * 
+	 * @param b Bucket to move keys that do not fit the bitPattern filter.
+	 * @param bitPattern Filter.
+	 * @param h Hasher computing the pseudokeys.
+	 */
+	public void filter(IntBucket b, int bitPattern, IntHasher h)
+	{
+		// Keys stay sorted on both sides, so they are appended instead of inserted.
+		int kept = 0;
+		for (int i = 0; i < this.size; i++) {
+			int key = this.keys[i];
+			if (BitUtility.getLeftMostBits(h.hash(key), this.depth) == bitPattern)
+				this.keys[kept++] = key;
+			else
+				b.keys[b.size++] = key;
+		}
+		this.size = kept;
+	}
+	
+	/**
+	 * Copies every key in the bucket into an array.
+	 * 
+	 * @param out Array to copy the keys into.
+	 * @param offset Position in out of the first key.
+	 * @return the position in out after the last key.
+	 */
+	public int copyKeys(int[] out, int offset)
+	{
+		System.arraycopy(this.keys, 0, out, offset, this.size);
+		return offset + this.size;
+	}
+}
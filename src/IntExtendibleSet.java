@@ -0,0 +1,158 @@
+/**
+ * .IntExtendibleSet.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A set of int keys using Extendible Hashing. Works like Directory, but keys are stored in 
+ * fixed-width IntBuckets, so nothing is boxed or converted to a String, and lookups allocate 
+ * nothing.
+ */
+public class IntExtendibleSet
+{
+	private IntBucket[] directory;
+	private int depth;			/* max depth is 30 since depth=31 overflows an int data type */
+	private int size;
+	
+	private IntHasher h;
+	
+	/**
+	 * Constructs an IntExtendibleSet with a starting length of 1 and depth of 0.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 */
+	public IntExtendibleSet(int bucketSizeInBytes)
+	{
+		this(bucketSizeInBytes, MixHasher.getInstance());
+	}
+	
+	/**
+	 * Constructs an IntExtendibleSet that maps keys to pseudokeys with the given hasher.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param h the hasher used to compute pseudokeys.
+	 */
+	public IntExtendibleSet(int bucketSizeInBytes, IntHasher h)
+	{
+		if (bucketSizeInBytes < Integer.BYTES)
+			throw new IllegalArgumentException("A bucket must hold at least one key");
+		
+		this.directory = new IntBucket[] {new IntBucket(bucketSizeInBytes / Integer.BYTES)};
+		this.depth = 0;
+		this.size = 0;
+		this.h = h;
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	public int getLength()
+	{
+		return this.directory.length;
+	}
+	
+	/**
+	 * Gets the number of keys in the set.
+	 * 
+	 * @return the number of keys.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Adds a key to the set.
+	 * 
+	 * @param key Key to add.
+	 * @return true if the key was added, false if it was already in the set.
+	 */
+	public boolean add(int key)
+	{
+		int pseudokey = this.h.hash(key);
+		int index = BitUtility.getLeftMostBits(pseudokey, this.depth);
+		IntBucket b = this.directory[index];
+		if (b.contains(key))
+			return false;
+		
+		while (! b.insert(key)) {
+			if (this.depth > b.getDepth())
+				split(b);
+			else if (this.depth < Directory.MAX_DEPTH)
+				expand(index);
+			else
+				b.grow();
+			
+			index = BitUtility.getLeftMostBits(pseudokey, this.depth);
+			b = this.directory[index];
+		}
+		
+		this.size++;
+		return true;
+	}
+	
+	/**
+	 * Searches for key.
+	 * 
+	 * @param key The key to search for.
+	 * @return true if key is in the set, false otherwise.
+	 */
+	public boolean contains(int key)
+	{
+		return this.directory[BitUtility.getLeftMostBits(this.h.hash(key), this.depth)].contains(key);
+	}
+	
+	/**
+	 * Copies every key in the set into an array, bucket by bucket in directory order.
+	 * 
+	 * @return the keys of the set.
+	 */
+	public int[] toArray()
+	{
+		int[] keys = new int[this.size];
+		int offset = 0;
+		for (int i = 0; i < this.directory.length; i += 1 << (this.depth - this.directory[i].getDepth()))
+			offset = this.directory[i].copyKeys(keys, offset);
+		return keys;
+	}
+	
+	/**
+	 * Splits a full bucket that is referenced by more than one directory entry.
+	 * 
+	 * @param b The full bucket.
+	 */
+	private void split(IntBucket b)
+	{
+		IntBucket b2 = new IntBucket(b);
+		b2.incDepth1();
+		b.incDepth0();
+		b.filter(b2, b.getBitPattern(), this.h);
+		
+		// Entries referencing b are adjacent, and the second half of them now references b2.
+		int aliasBits = this.depth - b.getDepth();
+		int start = b2.getBitPattern() << aliasBits;
+		for (int i = 0; i < (1 << aliasBits); i++)
+			this.directory[start + i] = b2;
+	}
+	
+	/**
+	 * Doubles the size of the directory, increments depth, and splits the full bucket.
+	 * 
+	 * @param fullBucketIndex The index of the directory entry referencing a full bucket.
+	 */
+	private void expand(int fullBucketIndex)
+	{
+		IntBucket[] newDirectory = new IntBucket[this.directory.length * 2];
+		for (int i = 0; i < this.directory.length; i++) {
+			newDirectory[i*2] = this.directory[i];
+			newDirectory[i*2 + 1] = this.directory[i];
+		}
+		
+		this.directory = newDirectory;
+		this.depth++;
+		split(this.directory[fullBucketIndex*2]);
+	}
+}
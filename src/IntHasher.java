@@ -0,0 +1,19 @@
+/**
+ * .IntHasher.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Implemented by classes that hash int keys to pseudokeys without boxing them.
+ */
+public interface IntHasher
+{
+	/**
+	 * Hashes an int key to a 32-bit pseudokey.
+	 * 
+	 * @param key Key to hash.
+	 * @return A 32-bit integer.
+	 */
+	public int hash(int key);
+}
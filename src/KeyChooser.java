@@ -0,0 +1,170 @@
+import java.util.Random;
+
+/**
+ * .KeyChooser.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Chooses which of the keys inserted so far an operation uses. Keys are numbered in the order they 
+ * were inserted, and a chooser picks a number from 0 to count - 1.
+ *
+ * Not thread-safe. Each thread uses its own chooser.
+ */
+public abstract class KeyChooser
+{
+	protected Random random;
+	
+	protected KeyChooser(long seed)
+	{
+		this.random = new Random(seed);
+	}
+	
+	/**
+	 * Creates a chooser by name.
+	 * 
+	 * @param distribution One of "uniform", "zipfian", "latest" or "hotspot".
+	 * @param seed Seed of the random numbers.
+	 * @return the chooser.
+	 */
+	public static KeyChooser create(String distribution, long seed)
+	{
+		if (distribution.equals("uniform"))
+			return new Uniform(seed);
+		if (distribution.equals("zipfian"))
+			return new Zipfian(seed, 0.99, true);
+		if (distribution.equals("latest"))
+			return new Latest(seed);
+		if (distribution.equals("hotspot"))
+			return new Hotspot(seed, 0.2, 0.8);
+		
+		throw new IllegalArgumentException("Unknown key distribution: " + distribution);
+	}
+	
+	/**
+	 * Chooses a key.
+	 * 
+	 * @param count Number of keys to choose from.
+	 * @return the number of the chosen key, from 0 to count - 1.
+	 */
+	public abstract long next(long count);
+	
+	/**
+	 * Every key is equally likely.
+	 */
+	static class Uniform extends KeyChooser
+	{
+		Uniform(long seed)
+		{
+			super(seed);
+		}
+		
+		public long next(long count)
+		{
+			return (long) (this.random.nextDouble() * count);
+		}
+	}
+	
+	/**
+	 * Key i is chosen with probability proportional to 1/(i+1)^theta, using the method of Gray 
+	 * et al. in "Quickly Generating Billion-Record Synthetic Databases". The normalizing sum is 
+	 * extended as keys are added instead of being recomputed.
+	 */
+	static class Zipfian extends KeyChooser
+	{
+		private double theta;
+		private boolean scrambled;
+		
+		private long zetaCount;
+		private double zeta;
+		private double zeta2;
+		
+		/**
+		 * @param theta Skew of the distribution, below 1.
+		 * @param scrambled true to spread the popular keys over the key space, false to make key 0 
+		 * the most popular.
+		 */
+		Zipfian(long seed, double theta, boolean scrambled)
+		{
+			super(seed);
+			this.theta = theta;
+			this.scrambled = scrambled;
+			this.zeta2 = 1 + 1 / Math.pow(2, theta);
+		}
+		
+		public long next(long count)
+		{
+			if (count <= 1)
+				return 0;
+			
+			for (; this.zetaCount < count; this.zetaCount++)
+				this.zeta += 1 / Math.pow(this.zetaCount + 1, this.theta);
+			
+			double alpha = 1 / (1 - this.theta);
+			double eta = (1 - Math.pow(2.0 / count, 1 - this.theta)) / (1 - this.zeta2 / this.zeta);
+			double u = this.random.nextDouble();
+			double uz = u * this.zeta;
+			
+			long rank;
+			if (uz < 1)
+				rank = 0;
+			else if (uz < this.zeta2)
+				rank = 1;
+			else
+				rank = Math.min(count - 1, (long) (count * Math.pow(eta * u - eta + 1, alpha)));
+			
+			if (! this.scrambled)
+				return rank;
+			return (MixHasher.mix64(rank) & Long.MAX_VALUE) % count;
+		}
+	}
+	
+	/**
+	 * The most recently inserted keys are the most popular, with Zipfian popularity by age.
+	 */
+	static class Latest extends KeyChooser
+	{
+		private Zipfian age;
+		
+		Latest(long seed)
+		{
+			super(seed);
+			this.age = new Zipfian(seed, 0.99, false);
+		}
+		
+		public long next(long count)
+		{
+			return count - 1 - this.age.next(count);
+		}
+	}
+	
+	/**
+	 * A fraction of the keys receives a fraction of the operations, and the rest of the keys 
+	 * receive the rest, uniformly within each set.
+	 */
+	static class Hotspot extends KeyChooser
+	{
+		private double hotKeys;
+		private double hotOps;
+		
+		/**
+		 * @param hotKeys Fraction of keys that are hot.
+		 * @param hotOps Fraction of operations that use a hot key.
+		 */
+		Hotspot(long seed, double hotKeys, double hotOps)
+		{
+			super(seed);
+			this.hotKeys = hotKeys;
+			this.hotOps = hotOps;
+		}
+		
+		public long next(long count)
+		{
+			long hot = Math.max(1, (long) (count * this.hotKeys));
+			if (this.random.nextDouble() < this.hotOps || hot == count)
+				return (long) (this.random.nextDouble() * hot);
+			return hot + (long) (this.random.nextDouble() * (count - hot));
+		}
+	}
+}
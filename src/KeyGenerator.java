@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * .KeyGenerator.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Generates sets of distinct keys with different length distributions, and lookup sequences with 
+ * a given fraction of hits, for benchmarks and workloads.
+ */
+public class KeyGenerator
+{
+	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+	
+	// Never produced by the generators, so appending it to a key makes a key that is not in the set.
+	private static final char MISS_SUFFIX = '#';
+	
+	private Random random;
+	
+	/**
+	 * Constructs a KeyGenerator.
+	 * 
+	 * @param seed Seed of the random numbers, so runs can be repeated.
+	 */
+	public KeyGenerator(long seed)
+	{
+		this.random = new Random(seed);
+	}
+	
+	/**
+	 * Generates keys by name.
+	 * 
+	 * @param distribution One of "words", "uniform", "zipfian" or "prefix".
+	 * @param count Number of keys. Only the first count lines are used for "words".
+	 * @param wordsFile File of keys used for "words".
+	 * @return distinct keys.
+	 * @throws IOException when the words file cannot be read.
+	 */
+	public List<String> generate(String distribution, int count, String wordsFile) throws IOException
+	{
+		if (distribution.equals("words"))
+			return words(wordsFile, count);
+		if (distribution.equals("uniform"))
+			return uniform(count, 4, 16);
+		if (distribution.equals("zipfian"))
+			return zipfian(count, 32, 1.2);
+		if (distribution.equals("prefix"))
+			return sharedPrefix(count, 24, 6);
+		
+		throw new IllegalArgumentException("Unknown key distribution: " + distribution);
+	}
+	
+	/**
+	 * Reads distinct keys from a file of keys.
+	 * 
+	 * @param fileName File of keys, one per line.
+	 * @param count Largest number of keys to read.
+	 * @return the first count distinct keys in the file.
+	 * @throws IOException when the file cannot be read.
+	 */
+	public List<String> words(String fileName, int count) throws IOException
+	{
+		Set<String> keys = new HashSet<String>();
+		List<String> result = new ArrayList<String>();
+		for (String key : new KeyReader(fileName).readAllLines()) {
+			if (result.size() == count)
+				break;
+			if (keys.add(key))
+				result.add(key);
+		}
+		return result;
+	}
+	
+	/**
+	 * Generates keys whose lengths are spread evenly between minLength and maxLength.
+	 * 
+	 * @param count Number of keys.
+	 * @param minLength Shortest key length.
+	 * @param maxLength Longest key length.
+	 * @return distinct keys.
+	 */
+	public List<String> uniform(int count, int minLength, int maxLength)
+	{
+		Set<String> keys = new HashSet<String>();
+		List<String> result = new ArrayList<String>(count);
+		while (result.size() < count) {
+			String key = randomString(minLength + this.random.nextInt(maxLength - minLength + 1));
+			if (keys.add(key))
+				result.add(key);
+		}
+		return result;
+	}
+	
+	/**
+	 * Generates keys whose lengths follow a Zipfian distribution, so most keys are short and a few 
+	 * are long. Lengths that run out of distinct keys are skipped.
+	 * 
+	 * @param count Number of keys.
+	 * @param maxLength Longest key length.
+	 * @param skew Exponent of the distribution. Larger values make short keys more common.
+	 * @return distinct keys.
+	 */
+	public List<String> zipfian(int count, int maxLength, double skew)
+	{
+		double[] cdf = zipfCdf(maxLength, skew);
+		Set<String> keys = new HashSet<String>();
+		List<String> result = new ArrayList<String>(count);
+		
+		// Short lengths only have so many distinct keys, so give up on a key after a few tries.
+		while (result.size() < count) {
+			int length = zipfRank(cdf) + 1;
+			for (int tries = 0; tries < 4; tries++) {
+				String key = randomString(Math.max(length, 2));
+				if (keys.add(key)) {
+					result.add(key);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Generates keys that all start with the same prefix, so comparing them inside a bucket has to 
+	 * get past the prefix every time.
+	 * 
+	 * @param count Number of keys.
+	 * @param prefixLength Length of the shared prefix.
+	 * @param suffixLength Length of the distinct part of each key.
+	 * @return distinct keys.
+	 */
+	public List<String> sharedPrefix(int count, int prefixLength, int suffixLength)
+	{
+		String prefix = randomString(prefixLength);
+		Set<String> keys = new HashSet<String>();
+		List<String> result = new ArrayList<String>(count);
+		while (result.size() < count) {
+			String key = prefix + randomString(suffixLength);
+			if (keys.add(key))
+				result.add(key);
+		}
+		return result;
+	}
+	
+	/**
+	 * Generates a sequence of lookups over keys, where hitRatio of them are in keys and the rest 
+	 * are not.
+	 * 
+	 * @param keys The keys that are present.
+	 * @param count Number of lookups.
+	 * @param hitRatio Fraction of lookups that hit, between 0 and 1.
+	 * @return the lookups, in random order.
+	 */
+	public List<String> lookups(List<String> keys, int count, double hitRatio)
+	{
+		List<String> result = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			String key = keys.get(this.random.nextInt(keys.size()));
+			result.add((this.random.nextDouble() < hitRatio) ? key : key + MISS_SUFFIX);
+		}
+		return result;
+	}
+	
+	/**
+	 * Generates a sequence of lookups over keys where the popularity of each key follows a 
+	 * Zipfian distribution.
+	 * 
+	 * @param keys The keys that are present. The first key is the most popular.
+	 * @param count Number of lookups.
+	 * @param skew Exponent of the distribution.
+	 * @return the lookups.
+	 */
+	public List<String> zipfianLookups(List<String> keys, int count, double skew)
+	{
+		double[] cdf = zipfCdf(keys.size(), skew);
+		List<String> result = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++)
+			result.add(keys.get(zipfRank(cdf)));
+		return result;
+	}
+	
+	/**
+	 * Shuffles keys in place.
+	 * 
+	 * @param keys Keys to shuffle.
+	 */
+	public void shuffle(List<String> keys)
+	{
+		Collections.shuffle(keys, this.random);
+	}
+	
+	/**
+	 * Computes the cumulative distribution of ranks 1..n with probability proportional to 
+	 * 1/rank^skew.
+	 */
+	private static double[] zipfCdf(int n, double skew)
+	{
+		double[] cdf = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += 1 / Math.pow(i + 1, skew);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < n; i++)
+			cdf[i] /= sum;
+		return cdf;
+	}
+	
+	/**
+	 * Draws a rank from a distribution computed by zipfCdf.
+	 * 
+	 * @return a rank, starting at 0.
+	 */
+	private int zipfRank(double[] cdf)
+	{
+		int index = Arrays.binarySearch(cdf, this.random.nextDouble());
+		return Math.min((index >= 0) ? index : -(index + 1), cdf.length - 1);
+	}
+	
+	private String randomString(int length)
+	{
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = ALPHABET.charAt(this.random.nextInt(ALPHABET.length()));
+		return new String(chars);
+	}
+}
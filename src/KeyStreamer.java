@@ -0,0 +1,164 @@
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * .KeyStreamer.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Streams a file of keys (one per line) straight into a Directory.
+ *
+ * Unlike KeyReader, the file is never held in memory as Strings. It is memory-mapped one window
+ * at a time, and every ASCII key is hashed and inserted directly from the mapped bytes, so files
+ * larger than the heap load with constant memory.
+ */
+public class KeyStreamer implements Closeable
+{
+	// Number of bytes of the file mapped at a time.
+	private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+	
+	private String fileName;
+	private FileChannel channel;
+	
+	/**
+	 * Constructs a KeyStreamer that streams keys from fileName.
+	 * 
+	 * @param fileName File to stream keys from.
+	 * @throws FileNotFoundException when the fileName file cannot be found or opened.
+	 */
+	public KeyStreamer(String fileName) throws FileNotFoundException
+	{
+		try {
+			this.channel = new RandomAccessFile(fileName, "r").getChannel();
+			this.fileName = fileName;
+		}
+		catch (FileNotFoundException fnfe) {
+			ErrorLogger.logException("KeyStreamer(String)",
+									 fileName + " not found or cannot be opened.",
+									 fnfe);
+			throw fnfe;
+		}
+	}
+	
+	/**
+	 * Inserts at most the specified number of keys into d. If the file contains less keys than
+	 * the parameter passed in, then the entire file is inserted.
+	 * 
+	 * @param d Directory to insert the keys into.
+	 * @param keys Number of keys to insert.
+	 * @param bucketSizeInBytes Size of the buckets in d. Every key must fit in a bucket along
+	 * with its length.
+	 * @return The number of keys inserted.
+	 * @throws IOException when the file cannot be read, or contains a key that is too long.
+	 */
+	public long insertKeys(Directory d, long keys, int bucketSizeInBytes) throws IOException
+	{
+		// Keys can only skip the String if they hash the way d would hash their String.
+		boolean hashInPlace = d.getHasher() == StringHasher.getInstance();
+		StringHasher h = StringHasher.getInstance();
+		ByteSequence key = new ByteSequence(null, 0, 0);
+		
+		long size = this.channel.size();
+		long windowStart = 0;
+		long inserted = 0;
+		
+		try {
+			while (windowStart < size && inserted < keys) {
+				int windowLength = (int) Math.min(WINDOW_SIZE, size - windowStart);
+				MappedByteBuffer window = this.channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+				boolean lastWindow = windowStart + windowLength == size;
+				
+				int lineStart = 0;
+				for (int i = 0; i < windowLength && inserted < keys; i++) {
+					if (window.get(i) != '\n')
+						continue;
+					
+					insertLine(d, window, lineStart, i, bucketSizeInBytes, hashInPlace, h, key);
+					inserted++;
+					lineStart = i + 1;
+				}
+				
+				// The last line of the file may not end with a newline.
+				if (lastWindow && lineStart < windowLength && inserted < keys) {
+					insertLine(d, window, lineStart, windowLength, bucketSizeInBytes, hashInPlace, h, key);
+					inserted++;
+					lineStart = windowLength;
+				}
+				
+				// Start the next window at the first line that was not complete in this one.
+				if (lineStart == 0 && !lastWindow)
+					throw new IOException("Line starting at byte " + windowStart + " is longer than " + WINDOW_SIZE + " bytes");
+				windowStart += lineStart;
+				if (lastWindow)
+					break;
+			}
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("KeyStreamer.insertKeys(Directory, long, int)",
+									 "Cannot stream keys from " + this.fileName,
+									 ioe);
+			throw ioe;
+		}
+		
+		return inserted;
+	}
+	
+	/**
+	 * Closes the key file.
+	 * 
+	 * @throws IOException when the file cannot be closed.
+	 */
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+	
+	/**
+	 * Inserts the key stored in window[start..end) into d.
+	 */
+	private static void insertLine(Directory d, ByteBuffer window, int start, int end,
+			int bucketSizeInBytes, boolean hashInPlace, StringHasher h, ByteSequence key) throws IOException
+	{
+		// Accept both \n and \r\n line endings, like BufferedReader.readLine().
+		if (end > start && window.get(end-1) == '\r')
+			end--;
+		
+		int length = end - start;
+		boolean ascii = true;
+		for (int i = start; i < end && ascii; i++)
+			ascii = window.get(i) >= 0;
+		
+		if (ascii && hashInPlace) {
+			checkLength(length, bucketSizeInBytes);
+			key.reset(window, start, length);
+			d.insert(key, h.hash(window, start, length));
+			return;
+		}
+		
+		// Multi-byte characters, or a hasher that needs a String, take the slow path.
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = window.get(start + i);
+		String value = new String(bytes, Charset.defaultCharset());
+		
+		checkLength(value.length(), bucketSizeInBytes);
+		d.insert(value);
+	}
+	
+	/**
+	 * Ensures a key fits in a bucket along with its length.
+	 */
+	private static void checkLength(int length, int bucketSizeInBytes) throws IOException
+	{
+		if (length + 1 > bucketSizeInBytes)
+			throw new IOException("Key of length " + length + " does not fit in a bucket of " + bucketSizeInBytes + " bytes");
+	}
+}
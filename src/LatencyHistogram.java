@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ * .LatencyHistogram.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A histogram of latencies in nanoseconds with a relative error under 1%, in the style of 
+ * HdrHistogram. Values under 128 get a bin each. Larger values are binned by their highest set bit 
+ * into 64 linear sub-bins, so every bin is at most 1/64 as wide as the values in it.
+ *
+ * Not thread-safe. Each thread records into its own histogram, and they are added together.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BITS = 6;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BIN_COUNT = 2 * SUB_COUNT + (63 - SUB_BITS - 1) * SUB_COUNT;
+	
+	private long[] counts;
+	private long totalCount;
+	private long max;
+	private double sum;
+	
+	/**
+	 * Constructs an empty LatencyHistogram.
+	 */
+	public LatencyHistogram()
+	{
+		this.counts = new long[BIN_COUNT];
+	}
+	
+	/**
+	 * Records a latency.
+	 * 
+	 * @param nanos the latency in nanoseconds. Negative values are recorded as 0.
+	 */
+	public void record(long nanos)
+	{
+		nanos = Math.max(0, nanos);
+		this.counts[binOf(nanos)]++;
+		this.totalCount++;
+		this.max = Math.max(this.max, nanos);
+		this.sum += nanos;
+	}
+	
+	/**
+	 * Records a latency measured by a closed-loop caller that meant to start an operation every 
+	 * expectedInterval nanoseconds. While an operation stalls, the caller does not start the ones 
+	 * it would have, so their latencies are missing. They are filled in as latency - interval, 
+	 * latency - 2*interval and so on, which is how long each of them would have waited.
+	 * 
+	 * @param nanos the latency in nanoseconds.
+	 * @param expectedInterval the intended time between operations in nanoseconds.
+	 */
+	public void recordCorrected(long nanos, long expectedInterval)
+	{
+		record(nanos);
+		if (expectedInterval <= 0)
+			return;
+		for (long missing = nanos - expectedInterval; missing >= expectedInterval; missing -= expectedInterval)
+			record(missing);
+	}
+	
+	/**
+	 * Adds every latency recorded in another histogram to this one.
+	 * 
+	 * @param other the histogram to add.
+	 */
+	public void add(LatencyHistogram other)
+	{
+		for (int i = 0; i < BIN_COUNT; i++)
+			this.counts[i] += other.counts[i];
+		this.totalCount += other.totalCount;
+		this.max = Math.max(this.max, other.max);
+		this.sum += other.sum;
+	}
+	
+	/**
+	 * Removes every recorded latency.
+	 */
+	public void reset()
+	{
+		Arrays.fill(this.counts, 0);
+		this.totalCount = 0;
+		this.max = 0;
+		this.sum = 0;
+	}
+	
+	public long getCount()
+	{
+		return this.totalCount;
+	}
+	
+	public long getMax()
+	{
+		return this.max;
+	}
+	
+	public double getMean()
+	{
+		return (this.totalCount == 0) ? 0 : this.sum / this.totalCount;
+	}
+	
+	/**
+	 * Gets the latency at a percentile.
+	 * 
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return the highest latency that could be in the bin holding the percentile, or 0 if 
+	 * nothing was recorded.
+	 */
+	public long getPercentile(double percentile)
+	{
+		if (this.totalCount == 0)
+			return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.totalCount));
+		long seen = 0;
+		for (int i = 0; i < BIN_COUNT; i++) {
+			seen += this.counts[i];
+			if (seen >= rank)
+				return Math.min(this.max, highestOf(i));
+		}
+		return this.max;
+	}
+	
+	/**
+	 * Finds the bin of a value.
+	 */
+	private static int binOf(long value)
+	{
+		if (value < 2 * SUB_COUNT)
+			return (int) value;
+		
+		// The highest set bit picks a range, and the SUB_BITS bits below it pick a bin in the range.
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		int sub = (int) (value >>> shift) - SUB_COUNT;
+		return 2 * SUB_COUNT + (shift - 1) * SUB_COUNT + sub;
+	}
+	
+	/**
+	 * Finds the highest value in a bin.
+	 */
+	private static long highestOf(int bin)
+	{
+		if (bin < 2 * SUB_COUNT)
+			return bin;
+		
+		int shift = (bin - 2 * SUB_COUNT) / SUB_COUNT + 1;
+		long sub = (bin - 2 * SUB_COUNT) % SUB_COUNT + SUB_COUNT;
+		return ((sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,336 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * .LinearHashIndex.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A hash index using Linear Hashing, for comparison with Directory. It uses the same Buckets and
+ * Hasher, but has no directory to double.
+ *
+ * Buckets are split one at a time, in order, whenever the index is fuller than its maximum load
+ * factor. The split pointer is the next bucket to split. Buckets before it have already been split
+ * in the current round and are addressed with one more bit than the others. The bucket being
+ * split is rarely the one that overflowed, so full buckets get chained buckets until their turn
+ * comes. Growth costs one bucket's worth of work at a time, with no doubling pause, at the price
+ * of longer chains between splits.
+ *
+ *          +--------------------------------------------------------+
+ * buckets= | split (level+1 bits) | not split yet (level bits) | new |
+ *          +--------------------------------------------------------+
+ *                                 ^ split pointer
+ */
+public class LinearHashIndex implements HashIndex
+{
+	private List<Bucket> buckets;
+	private int level;			/* buckets are addressed with level bits, or level+1 before split */
+	private int split;
+	
+	private Hasher<String> h;
+	private int capacity;
+	private double maxLoad;
+	
+	private long used;			/* chars taken by values and their lengths */
+	private long splits;
+	private long chains;
+	
+	/**
+	 * Constructs a LinearHashIndex with a single bucket that splits once it is 75% full.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 */
+	public LinearHashIndex(int bucketSizeInBytes)
+	{
+		this(bucketSizeInBytes, StringHasher.getInstance(), 0.75);
+	}
+	
+	/**
+	 * Constructs a LinearHashIndex with a single bucket.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param h the hasher used to compute pseudokeys.
+	 * @param maxLoad the fraction of the buckets' capacity that may be used before a bucket is
+	 * split, between 0 and 1 exclusive.
+	 */
+	public LinearHashIndex(int bucketSizeInBytes, Hasher<String> h, double maxLoad)
+	{
+		if (! (maxLoad > 0 && maxLoad < 1))
+			throw new IllegalArgumentException("Maximum load factor must be between 0 and 1: " + maxLoad);
+		
+		this.buckets = new ArrayList<Bucket>();
+		this.buckets.add(new Bucket(bucketSizeInBytes, h));
+		this.level = 0;
+		this.split = 0;
+		this.h = h;
+		this.capacity = bucketSizeInBytes;
+		this.maxLoad = maxLoad;
+	}
+	
+	public int getLevel()
+	{
+		return this.level;
+	}
+	
+	public int getSplitPointer()
+	{
+		return this.split;
+	}
+	
+	/**
+	 * Gets the number of hash bits used to address the buckets at and after the split pointer.
+	 * 
+	 * @return the level of the index.
+	 */
+	public int getDepth()
+	{
+		return this.level;
+	}
+	
+	/**
+	 * Gets the number of addresses, which is the number of buckets since there is no directory.
+	 * 
+	 * @return the number of buckets.
+	 */
+	public int getLength()
+	{
+		return this.buckets.size();
+	}
+	
+	public long getSplitCount()
+	{
+		return this.splits;
+	}
+	
+	/**
+	 * Gets the number of completed rounds of splits, each of which doubles the address space.
+	 * 
+	 * @return the number of doublings.
+	 */
+	public long getExpandCount()
+	{
+		return this.level;
+	}
+	
+	public int getBucketCount()
+	{
+		return this.buckets.size();
+	}
+	
+	/**
+	 * Gets the fraction of the buckets' capacity used by values, not counting chained buckets.
+	 * 
+	 * @return the load factor.
+	 */
+	public double getLoadFactor()
+	{
+		return (double) this.used / ((long) this.capacity * this.buckets.size());
+	}
+	
+	public long getSizeInBytes()
+	{
+		long bytes = (long) this.buckets.size() * Integer.BYTES;
+		for (Bucket head : this.buckets) {
+			for (Bucket b = head; b != null; b = b.getNextBucket())
+				bytes += (long) b.getCapacity() * Character.BYTES;
+		}
+		return bytes;
+	}
+	
+	public String getStats()
+	{
+		int longestChain = 0;
+		for (Bucket head : this.buckets) {
+			int chain = 0;
+			for (Bucket b = head.getNextBucket(); b != null; b = b.getNextBucket())
+				chain++;
+			longestChain = Math.max(longestChain, chain);
+		}
+		
+		StringBuilder sb = new StringBuilder();
+		sb.append("linear_level ").append(this.level).append('\n');
+		sb.append("linear_split_pointer ").append(this.split).append('\n');
+		sb.append("linear_buckets ").append(this.buckets.size()).append('\n');
+		sb.append("linear_load_factor ").append(getLoadFactor()).append('\n');
+		sb.append("linear_splits ").append(this.splits).append('\n');
+		sb.append("linear_chains ").append(this.chains).append('\n');
+		sb.append("linear_longest_chain ").append(longestChain).append('\n');
+		sb.append("linear_bytes ").append(getSizeInBytes()).append('\n');
+		return sb.toString();
+	}
+	
+	/**
+	 * Inserts a value into its bucket, chaining a bucket to it if it is full, then splits buckets
+	 * until the index is under its maximum load factor again.
+	 * 
+	 * @param value Value to insert.
+	 */
+	public void insert(String value)
+	{
+		if (value.length() + 1 > this.capacity)
+			throw new IllegalArgumentException("Value of length " + value.length() + " does not fit in a bucket");
+		
+		add(this.buckets.get(address(this.h.hash(value))), value);
+		this.used += value.length() + 1;
+		
+		while (this.used > this.maxLoad * this.capacity * this.buckets.size())
+			splitNext();
+	}
+	
+	public boolean insertIfAbsent(String value)
+	{
+		if (value.length() + 1 > this.capacity)
+			throw new IllegalArgumentException("Value of length " + value.length() + " does not fit in a bucket");
+		
+		Bucket b = this.buckets.get(address(this.h.hash(value)));
+		int status = b.insertIfAbsent(value);
+		if (status == Bucket.PRESENT)
+			return false;
+		if (status == Bucket.FULL) {
+			b.chainBucket();
+			this.chains++;
+			b.insert(value);
+		}
+		this.used += value.length() + 1;
+		
+		while (this.used > this.maxLoad * this.capacity * this.buckets.size())
+			splitNext();
+		return true;
+	}
+	
+	public void insertAll(List<String> values)
+	{
+		for (String value : values)
+			insert(value);
+	}
+	
+	public boolean contains(String value)
+	{
+		return this.buckets.get(address(this.h.hash(value))).search(value) >= 0;
+	}
+	
+	public boolean[] containsAll(List<String> values)
+	{
+		boolean[] found = new boolean[values.size()];
+		for (int i = 0; i < found.length; i++)
+			found[i] = contains(values.get(i));
+		return found;
+	}
+	
+	/**
+	 * Removes a value. Buckets are never merged, so the index does not shrink.
+	 * 
+	 * @param value Value to remove.
+	 * @return true if value was in the index, false otherwise.
+	 */
+	public boolean remove(String value)
+	{
+		boolean removed = this.buckets.get(address(this.h.hash(value))).remove(value);
+		if (removed)
+			this.used -= value.length() + 1;
+		return removed;
+	}
+	
+	public int countProbes(String value)
+	{
+		return this.buckets.get(address(this.h.hash(value))).countProbes(value);
+	}
+	
+	/**
+	 * Returns an iterator over every value in the index, bucket by bucket.
+	 * 
+	 * @return an iterator over every value.
+	 */
+	public Iterator<String> iterator()
+	{
+		return new Iterator<String>() {
+			private int next = 0;
+			private List<String> words = new ArrayList<String>();
+			private int nextWord = 0;
+			
+			public boolean hasNext()
+			{
+				while (this.nextWord == this.words.size() && this.next < LinearHashIndex.this.buckets.size()) {
+					this.words.clear();
+					this.nextWord = 0;
+					LinearHashIndex.this.buckets.get(this.next++).getWords(this.words);
+				}
+				return this.nextWord < this.words.size();
+			}
+			
+			public String next()
+			{
+				if (! hasNext())
+					throw new NoSuchElementException();
+				return this.words.get(this.nextWord++);
+			}
+		};
+	}
+	
+	/**
+	 * Gets the bucket a pseudokey is addressed to.
+	 * 
+	 * @param pseudokey The hash of a value.
+	 * @return the index of the bucket.
+	 */
+	private int address(int pseudokey)
+	{
+		// Bucket i holds the pseudokeys whose left most bits, read right to left, are i. Splitting
+		// it moves those whose next bit is 1 to bucket i + 2^level, so Bucket's bit patterns and
+		// Directory's pseudokeys mean the same here.
+		int reversed = Integer.reverse(pseudokey);
+		int i = reversed & ((1 << this.level) - 1);
+		if (i < this.split)
+			i = reversed & ((1 << (this.level + 1)) - 1);
+		return i;
+	}
+	
+	/**
+	 * Splits the bucket at the split pointer into itself and a new bucket at the end, and
+	 * advances the split pointer.
+	 */
+	private void splitNext()
+	{
+		Bucket old = this.buckets.get(this.split);
+		List<String> words = new ArrayList<String>();
+		old.getWords(words);
+		
+		// The words are written again rather than filtered, since the old bucket may be chained.
+		Bucket b0 = new Bucket(old);
+		Bucket b1 = new Bucket(old);
+		b0.incDepth0();
+		b1.incDepth1();
+		for (String word : words) {
+			if (((Integer.reverse(this.h.hash(word)) >>> this.level) & 1) == 0)
+				add(b0, word);
+			else
+				add(b1, word);
+		}
+		
+		this.buckets.set(this.split, b0);
+		this.buckets.add(b1);
+		this.splits++;
+		
+		this.split++;
+		if (this.split == 1 << this.level) {
+			this.level++;
+			this.split = 0;
+		}
+	}
+	
+	/**
+	 * Inserts a value into a bucket, chaining a bucket to it if it is full.
+	 */
+	private void add(Bucket b, String value)
+	{
+		if (! b.insert(value)) {
+			b.chainBucket();
+			this.chains++;
+			b.insert(value);
+		}
+	}
+}
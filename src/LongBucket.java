@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * .LongBucket.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A bucket of long keys and long values for LongExtendibleMap. Keys are kept sorted in a 
+ * fixed-width slot array, with each key's value in the same slot of a parallel array.
+ */
+public class LongBucket
+{
+	private long[] keys;
+	private long[] values;
+	private int size;
+	
+	private int depth;
+	private int bitPattern;
+	
+	/**
+	 * Constructs a new bucket.
+	 * 
+	 * @param capacity the number of entries the bucket holds.
+	 */
+	public LongBucket(int capacity)
+	{
+		this.keys = new long[capacity];
+		this.values = new long[capacity];
+		this.size = 0;
+		this.depth = 0;
+		this.bitPattern = -1;
+	}
+	
+	/**
+	 * Creates an empty LongBucket with the state of the input LongBucket.
+	 * 
+	 * @param b bucket to copy state, but not the entries.
+	 */
+	public LongBucket(LongBucket b)
+	{
+		this.keys = new long[b.keys.length];
+		this.values = new long[b.values.length];
+		this.size = 0;
+		this.depth = b.depth;
+		this.bitPattern = b.bitPattern;
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	public int getBitPattern()
+	{
+		return this.bitPattern;
+	}
+	
+	public int getSize()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 0.
+	 */
+	public void incDepth0()
+	{
+		this.depth++;
+		this.bitPattern = (this.bitPattern == -1) ? 0 : BitUtility.append0(this.bitPattern);
+	}
+	
+	/**
+	 * Increments the depth of the bucket. Appends 1.
+	 */
+	public void incDepth1()
+	{
+		this.depth++;
+		this.bitPattern = (this.bitPattern == -1) ? 1 : BitUtility.append1(this.bitPattern);
+	}
+	
+	/**
+	 * Finds the slot of a key.
+	 * 
+	 * @param key The key to search for.
+	 * @return the slot of key if found, otherwise (-(insertion point) - 1).
+	 */
+	public int search(long key)
+	{
+		return Arrays.binarySearch(this.keys, 0, this.size, key);
+	}
+	
+	/**
+	 * Gets the value in a slot found by search(long).
+	 * 
+	 * @param slot Slot of the entry.
+	 * @return the value of the entry.
+	 */
+	public long getValue(int slot)
+	{
+		return this.values[slot];
+	}
+	
+	/**
+	 * Replaces the value in a slot found by search(long).
+	 * 
+	 * @param slot Slot of the entry.
+	 * @param value New value of the entry.
+	 */
+	public void setValue(int slot, long value)
+	{
+		this.values[slot] = value;
+	}
+	
+	/**
+	 * Inserts an entry whose key is not already in the bucket.
+	 * 
+	 * @param key Key of the entry.
+	 * @param value Value of the entry.
+	 * @return true if the entry was inserted, false if the bucket is full.
+	 */
+	public boolean insert(long key, long value)
+	{
+		if (this.size == this.keys.length)
+			return false;
+		
+		int index = -(search(key) + 1);
+		System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+		System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+		this.keys[index] = key;
+		this.values[index] = value;
+		this.size++;
+		return true;
+	}
+	
+	/**
+	 * Doubles the capacity of the bucket. Only used once the directory cannot grow any deeper.
+	 */
+	public void grow()
+	{
+		this.keys = Arrays.copyOf(this.keys, this.keys.length * 2);
+		this.values = Arrays.copyOf(this.values, this.values.length * 2);
+	}
+	
+	/**
+	 * Moves every entry whose pseudokey does not start with bitPattern into b.
+	 * 
+	 * @param b Bucket to move entries that do not fit the bitPattern filter.
+	 * @param bitPattern Filter.
+	 * @param h Hasher computing the pseudokeys.
+	 */
+	public void filter(LongBucket b, int bitPattern, LongHasher h)
+	{
+		// Keys stay sorted on both sides, so they are appended instead of inserted.
+		int kept = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (BitUtility.getLeftMostBits(h.hash(this.keys[i]), this.depth) == bitPattern) {
+				this.keys[kept] = this.keys[i];
+				this.values[kept] = this.values[i];
+				kept++;
+			}
+			else {
+				b.keys[b.size] = this.keys[i];
+				b.values[b.size] = this.values[i];
+				b.size++;
+			}
+		}
+		this.size = kept;
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * .LongExtendibleMap.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A map from long keys to long values using Extendible Hashing. Works like Directory, but entries 
+ * are stored in fixed-width LongBuckets, so nothing is boxed or converted to a String, and 
+ * lookups allocate nothing.
+ */
+public class LongExtendibleMap
+{
+	private LongBucket[] directory;
+	private int depth;			/* max depth is 30 since depth=31 overflows an int data type */
+	private int size;
+	
+	private LongHasher h;
+	
+	/**
+	 * Constructs a LongExtendibleMap with a starting length of 1 and depth of 0.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 */
+	public LongExtendibleMap(int bucketSizeInBytes)
+	{
+		this(bucketSizeInBytes, MixHasher.getInstance());
+	}
+	
+	/**
+	 * Constructs a LongExtendibleMap that maps keys to pseudokeys with the given hasher.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param h the hasher used to compute pseudokeys.
+	 */
+	public LongExtendibleMap(int bucketSizeInBytes, LongHasher h)
+	{
+		if (bucketSizeInBytes < 2 * Long.BYTES)
+			throw new IllegalArgumentException("A bucket must hold at least one entry");
+		
+		this.directory = new LongBucket[] {new LongBucket(bucketSizeInBytes / (2 * Long.BYTES))};
+		this.depth = 0;
+		this.size = 0;
+		this.h = h;
+	}
+	
+	public int getDepth()
+	{
+		return this.depth;
+	}
+	
+	public int getLength()
+	{
+		return this.directory.length;
+	}
+	
+	/**
+	 * Gets the number of entries in the map.
+	 * 
+	 * @return the number of entries.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Maps key to value, replacing any value key already had.
+	 * 
+	 * @param key Key of the entry.
+	 * @param value Value of the entry.
+	 * @return true if key was not in the map before, false if its value was replaced.
+	 */
+	public boolean put(long key, long value)
+	{
+		int pseudokey = this.h.hash(key);
+		int index = BitUtility.getLeftMostBits(pseudokey, this.depth);
+		LongBucket b = this.directory[index];
+		int slot = b.search(key);
+		if (slot >= 0) {
+			b.setValue(slot, value);
+			return false;
+		}
+		
+		while (! b.insert(key, value)) {
+			if (this.depth > b.getDepth())
+				split(b);
+			else if (this.depth < Directory.MAX_DEPTH)
+				expand(index);
+			else
+				b.grow();
+			
+			index = BitUtility.getLeftMostBits(pseudokey, this.depth);
+			b = this.directory[index];
+		}
+		
+		this.size++;
+		return true;
+	}
+	
+	/**
+	 * Gets the value of key.
+	 * 
+	 * @param key The key to search for.
+	 * @param defaultValue Value returned if key is not in the map.
+	 * @return the value of key, or defaultValue if key is not in the map.
+	 */
+	public long get(long key, long defaultValue)
+	{
+		LongBucket b = this.directory[BitUtility.getLeftMostBits(this.h.hash(key), this.depth)];
+		int slot = b.search(key);
+		return (slot >= 0) ? b.getValue(slot) : defaultValue;
+	}
+	
+	/**
+	 * Searches for key.
+	 * 
+	 * @param key The key to search for.
+	 * @return true if key is in the map, false otherwise.
+	 */
+	public boolean containsKey(long key)
+	{
+		return this.directory[BitUtility.getLeftMostBits(this.h.hash(key), this.depth)].search(key) >= 0;
+	}
+	
+	/**
+	 * Splits a full bucket that is referenced by more than one directory entry.
+	 * 
+	 * @param b The full bucket.
+	 */
+	private void split(LongBucket b)
+	{
+		LongBucket b2 = new LongBucket(b);
+		b2.incDepth1();
+		b.incDepth0();
+		b.filter(b2, b.getBitPattern(), this.h);
+		
+		// Entries referencing b are adjacent, and the second half of them now references b2.
+		int aliasBits = this.depth - b.getDepth();
+		int start = b2.getBitPattern() << aliasBits;
+		for (int i = 0; i < (1 << aliasBits); i++)
+			this.directory[start + i] = b2;
+	}
+	
+	/**
+	 * Doubles the size of the directory, increments depth, and splits the full bucket.
+	 * 
+	 * @param fullBucketIndex The index of the directory entry referencing a full bucket.
+	 */
+	private void expand(int fullBucketIndex)
+	{
+		LongBucket[] newDirectory = new LongBucket[this.directory.length * 2];
+		for (int i = 0; i < this.directory.length; i++) {
+			newDirectory[i*2] = this.directory[i];
+			newDirectory[i*2 + 1] = this.directory[i];
+		}
+		
+		this.directory = newDirectory;
+		this.depth++;
+		split(this.directory[fullBucketIndex*2]);
+	}
+}
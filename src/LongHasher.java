@@ -0,0 +1,19 @@
+/**
+ * .LongHasher.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Implemented by classes that hash long keys to pseudokeys without boxing them.
+ */
+public interface LongHasher
+{
+	/**
+	 * Hashes a long key to a 32-bit pseudokey.
+	 * 
+	 * @param key Key to hash.
+	 * @return A 32-bit integer.
+	 */
+	public int hash(long key);
+}
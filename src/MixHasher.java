@@ -0,0 +1,87 @@
+/**
+ * .MixHasher.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Hashes int and long keys by mixing their bits with the finalizers of MurmurHash3. Numeric IDs 
+ * tend to be sequential, so their left most bits alone would put them all in the same bucket.
+ */
+public class MixHasher implements IntHasher, LongHasher
+{
+	private static MixHasher instance = null;
+	
+	/**
+	 * Called exactly once to construct a single instance of MixHasher.
+	 */
+	private MixHasher() {}
+	
+	/**
+	 * Returns the singleton object.
+	 * 
+	 * @return Singleton instance of MixHasher
+	 */
+	public static MixHasher getInstance()
+	{
+		if (instance == null) {
+			instance = new MixHasher();
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * Hashes an int key. Distinct keys always get distinct pseudokeys.
+	 * 
+	 * @param key Key to hash.
+	 * @return A 32-bit integer.
+	 */
+	public int hash(int key)
+	{
+		return mix32(key);
+	}
+	
+	/**
+	 * Hashes a long key to the high half of its mixed bits.
+	 * 
+	 * @param key Key to hash.
+	 * @return A 32-bit integer.
+	 */
+	public int hash(long key)
+	{
+		return (int) (mix64(key) >>> 32);
+	}
+	
+	/**
+	 * Mixes the bits of an int so every input bit affects every output bit.
+	 * 
+	 * @param h Value to mix.
+	 * @return The mixed value.
+	 */
+	public static int mix32(int h)
+	{
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+	
+	/**
+	 * Mixes the bits of a long so every input bit affects every output bit.
+	 * 
+	 * @param h Value to mix.
+	 * @return The mixed value.
+	 */
+	public static long mix64(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
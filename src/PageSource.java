@@ -0,0 +1,22 @@
+import java.nio.ByteBuffer;
+
+/**
+ * .PageSource.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Implemented by classes that hold bucket pages, so buckets can read their contents the first 
+ * time they are used instead of when they are created.
+ */
+public interface PageSource 
+{
+	/**
+	 * Gets a page written by Bucket.writePage(ByteBuffer, int, boolean).
+	 * 
+	 * @param page Number of the page.
+	 * @return A buffer whose contents start with the page.
+	 */
+	public ByteBuffer getPage(int page);
+}
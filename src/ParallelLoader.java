@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * .ParallelLoader.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Builds a Directory from a list of keys using every core.
+ *
+ * Keys are hashed in parallel, then radix-partitioned by the left most bits of their pseudokeys.
+ * Each partition is built into its own sub-directory on a ForkJoinPool without any coordination,
+ * and the sub-directories are stitched into a single Directory whose depth is the partition bits
+ * plus the deepest sub-directory.
+ */
+public class ParallelLoader
+{
+	// Number of keys hashed by a single task before it stops splitting.
+	private static final int HASH_BATCH_SIZE = 4096;
+	
+	private ForkJoinPool pool;
+	
+	/**
+	 * Constructs a ParallelLoader that runs on the common ForkJoinPool.
+	 */
+	public ParallelLoader()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Constructs a ParallelLoader that runs on the given pool.
+	 * 
+	 * @param pool Pool to hash keys and build partitions on.
+	 */
+	public ParallelLoader(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+	
+	/**
+	 * Reads at most lines keys from fileName and builds a Directory from them.
+	 * 
+	 * @param fileName File to read keys from.
+	 * @param lines Number of lines to read.
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @return a Directory containing every key read.
+	 * @throws IOException when the file cannot be read.
+	 */
+	public Directory load(String fileName, int lines, int bucketSizeInBytes) throws IOException
+	{
+		ArrayList<String> keys = new ArrayList<String>();
+		new KeyReader(fileName).readLines(keys, lines);
+		return load(keys, bucketSizeInBytes);
+	}
+	
+	/**
+	 * Builds a Directory from keys, partitioning by enough bits to keep every worker busy.
+	 * 
+	 * @param keys Keys to insert.
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @return a Directory containing every key.
+	 */
+	public Directory load(List<String> keys, int bucketSizeInBytes)
+	{
+		// Aim for a few partitions per worker so uneven partitions still balance out, but do not
+		// force the directory deeper than a serial build would need.
+		int partitionBits = 0;
+		while ((1 << partitionBits) < this.pool.getParallelism() * 4 &&
+				(keys.size() >> partitionBits) > HASH_BATCH_SIZE)
+			partitionBits++;
+		
+		return load(keys, bucketSizeInBytes, StringHasher.getInstance(), partitionBits);
+	}
+	
+	/**
+	 * Builds a Directory from keys.
+	 * 
+	 * @param keys Keys to insert.
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param h the hasher used to compute pseudokeys.
+	 * @param partitionBits number of left most pseudokey bits to partition keys by.
+	 * @return a Directory containing every key.
+	 */
+	public Directory load(List<String> keys, int bucketSizeInBytes, Hasher<String> h, int partitionBits)
+	{
+		if (partitionBits < 0 || partitionBits > Directory.MAX_DEPTH)
+			throw new IllegalArgumentException("partitionBits must be between 0 and " + Directory.MAX_DEPTH);
+		
+		String[] values = keys.toArray(new String[keys.size()]);
+		int[] pseudokeys = new int[values.length];
+		this.pool.invoke(new HashTask(values, pseudokeys, h, 0, values.length));
+		
+		// Radix-partition the positions of the keys by their left most bits.
+		int numPartitions = 1 << partitionBits;
+		int[] start = new int[numPartitions + 1];
+		for (int pseudokey : pseudokeys)
+			start[BitUtility.getLeftMostBits(pseudokey, partitionBits) + 1]++;
+		for (int i = 0; i < numPartitions; i++)
+			start[i+1] += start[i];
+		
+		int[] order = new int[values.length];
+		int[] next = start.clone();
+		for (int i = 0; i < pseudokeys.length; i++)
+			order[next[BitUtility.getLeftMostBits(pseudokeys[i], partitionBits)]++] = i;
+		
+		// Build every partition independently.
+		Directory[] partitions = new Directory[numPartitions];
+		Hasher<String> partitionHasher = new ShiftedHasher(h, partitionBits);
+		List<BuildTask> tasks = new ArrayList<BuildTask>();
+		for (int i = 0; i < numPartitions; i++) {
+			tasks.add(new BuildTask(partitions, i, values, pseudokeys, order, start[i], start[i+1],
+					bucketSizeInBytes, partitionHasher, partitionBits));
+		}
+		this.pool.invoke(new BuildAllTask(tasks));
+		
+		return stitch(partitions, partitionBits, h);
+	}
+	
+	/**
+	 * Combines partition directories into one directory.
+	 * 
+	 * @param partitions Sub-directories, indexed by the left most bits their keys share.
+	 * @param partitionBits Number of bits the keys were partitioned by.
+	 * @param h the hasher of the stitched directory.
+	 * @return the stitched directory.
+	 */
+	private static Directory stitch(Directory[] partitions, int partitionBits, Hasher<String> h)
+	{
+		int subDepth = 0;
+		for (Directory d : partitions)
+			subDepth = Math.max(subDepth, d.getDepth());
+		
+		int depth = partitionBits + subDepth;
+		Bucket[] directory = new Bucket[1 << depth];
+		
+		for (int p = 0; p < partitions.length; p++) {
+			Directory d = partitions[p];
+			int aliases = 1 << (subDepth - d.getDepth());
+			int base = p << subDepth;
+			
+			for (int i = 0; i < d.getLength(); i++) {
+				Bucket b = d.getBucket(i);
+				
+				// Buckets are shared by adjacent entries; only move each one into place once.
+				if (i == 0 || d.getBucket(i-1) != b) {
+					int localDepth = b.getDepth();
+					int bitPattern = (localDepth == 0) ? 0 : b.getBitPattern();
+					if (partitionBits + localDepth == 0)
+						b.rebase(0, -1, h);
+					else
+						b.rebase(partitionBits + localDepth, (p << localDepth) | bitPattern, h);
+				}
+				
+				for (int j = 0; j < aliases; j++)
+					directory[base + i*aliases + j] = b;
+			}
+		}
+		
+		return new Directory(directory, depth, h);
+	}
+	
+	/**
+	 * Hashes a range of keys, splitting the range until it is small enough to hash directly.
+	 */
+	private static class HashTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private String[] values;
+		private int[] pseudokeys;
+		private Hasher<String> h;
+		private int from, to;
+		
+		public HashTask(String[] values, int[] pseudokeys, Hasher<String> h, int from, int to)
+		{
+			this.values = values;
+			this.pseudokeys = pseudokeys;
+			this.h = h;
+			this.from = from;
+			this.to = to;
+		}
+		
+		protected void compute()
+		{
+			if (this.to - this.from <= HASH_BATCH_SIZE) {
+				for (int i = this.from; i < this.to; i++)
+					this.pseudokeys[i] = this.h.hash(this.values[i]);
+				return;
+			}
+			
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new HashTask(this.values, this.pseudokeys, this.h, this.from, mid),
+					  new HashTask(this.values, this.pseudokeys, this.h, mid, this.to));
+		}
+	}
+	
+	/**
+	 * Builds the sub-directory of a single partition.
+	 */
+	private static class BuildTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private Directory[] partitions;
+		private int partition;
+		private String[] values;
+		private int[] pseudokeys;
+		private int[] order;
+		private int from, to;
+		private int bucketSizeInBytes;
+		private Hasher<String> h;
+		private int partitionBits;
+		
+		public BuildTask(Directory[] partitions, int partition, String[] values, int[] pseudokeys,
+				int[] order, int from, int to, int bucketSizeInBytes, Hasher<String> h, int partitionBits)
+		{
+			this.partitions = partitions;
+			this.partition = partition;
+			this.values = values;
+			this.pseudokeys = pseudokeys;
+			this.order = order;
+			this.from = from;
+			this.to = to;
+			this.bucketSizeInBytes = bucketSizeInBytes;
+			this.h = h;
+			this.partitionBits = partitionBits;
+		}
+		
+		protected void compute()
+		{
+			// The stitched directory adds partitionBits to every depth, so keep room for them.
+			Directory d = new Directory(this.bucketSizeInBytes, this.h, Directory.MAX_DEPTH - this.partitionBits);
+			
+			for (int i = this.from; i < this.to; i++) {
+				int k = this.order[i];
+				d.insert(this.values[k], this.pseudokeys[k] << this.partitionBits);
+			}
+			
+			this.partitions[this.partition] = d;
+		}
+	}
+	
+	/**
+	 * Runs every partition build as an independent task.
+	 */
+	private static class BuildAllTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private List<BuildTask> tasks;
+		
+		public BuildAllTask(List<BuildTask> tasks)
+		{
+			this.tasks = tasks;
+		}
+		
+		protected void compute()
+		{
+			invokeAll(this.tasks);
+		}
+	}
+}
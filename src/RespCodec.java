@@ -0,0 +1,307 @@
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .RespCodec.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Encodes and decodes the subset of the Redis serialization protocol (RESP) spoken by TableServer 
+ * and TableClient. Commands are arrays of bulk strings. Replies are simple strings, errors, 
+ * integers, bulk strings (possibly null) or arrays of bulk strings.
+ *
+ * Decoders read from a buffer holding whatever has arrived so far. If the buffer does not hold a 
+ * whole message yet, they leave its position where it was and report that more is needed.
+ */
+public class RespCodec
+{
+	// Returned by parseReply when the buffer does not hold a whole reply, since null is a reply.
+	public static final Object INCOMPLETE = new Object();
+	
+	// Largest bulk string accepted, so a bad length cannot make the reader buffer grow forever.
+	public static final int MAX_BULK_LENGTH = 1 << 20;
+	
+	private static final byte[] CRLF = {'\r', '\n'};
+	
+	private RespCodec() {}
+	
+	/**
+	 * An error reply.
+	 */
+	public static class ErrorReply
+	{
+		private String message;
+		
+		public ErrorReply(String message)
+		{
+			this.message = message;
+		}
+		
+		public String getMessage()
+		{
+			return this.message;
+		}
+		
+		public String toString()
+		{
+			return "-" + this.message;
+		}
+	}
+	
+	/**
+	 * Decodes a command.
+	 * 
+	 * @param in Buffer to read from, starting at its position.
+	 * @return the command name and arguments, or null if the buffer does not hold a whole command.
+	 * @throws ProtocolException when the buffer does not hold a command.
+	 */
+	public static String[] parseCommand(ByteBuffer in) throws ProtocolException
+	{
+		int start = in.position();
+		if (! in.hasRemaining())
+			return null;
+		if (in.get() != '*')
+			throw new ProtocolException("Expected an array of bulk strings");
+		
+		long count = readNumber(in);
+		if (count == Long.MIN_VALUE) {
+			in.position(start);
+			return null;
+		}
+		if (count < 1 || count > MAX_BULK_LENGTH)
+			throw new ProtocolException("Bad command length " + count);
+		
+		String[] args = new String[(int) count];
+		for (int i = 0; i < args.length; i++) {
+			if (! in.hasRemaining()) {
+				in.position(start);
+				return null;
+			}
+			if (in.get() != '$')
+				throw new ProtocolException("Expected a bulk string");
+			
+			Object arg = readBulk(in);
+			if (arg == INCOMPLETE) {
+				in.position(start);
+				return null;
+			}
+			if (arg == null)
+				throw new ProtocolException("Null argument");
+			args[i] = (String) arg;
+		}
+		return args;
+	}
+	
+	/**
+	 * Decodes a reply.
+	 * 
+	 * @param in Buffer to read from, starting at its position.
+	 * @return a String, Long, ErrorReply, null, or List of those, or INCOMPLETE if the buffer does 
+	 * not hold a whole reply.
+	 * @throws ProtocolException when the buffer does not hold a reply.
+	 */
+	public static Object parseReply(ByteBuffer in) throws ProtocolException
+	{
+		int start = in.position();
+		if (! in.hasRemaining())
+			return INCOMPLETE;
+		
+		byte type = in.get();
+		Object reply;
+		if (type == '+' || type == '-') {
+			String line = readLine(in);
+			reply = (line == null) ? INCOMPLETE : (type == '+') ? line : new ErrorReply(line);
+		}
+		else if (type == ':') {
+			long value = readNumber(in);
+			reply = (value == Long.MIN_VALUE) ? INCOMPLETE : (Object) value;
+		}
+		else if (type == '$') {
+			reply = readBulk(in);
+		}
+		else if (type == '*') {
+			long count = readNumber(in);
+			if (count == Long.MIN_VALUE) {
+				reply = INCOMPLETE;
+			}
+			else if (count < 0) {
+				reply = null;
+			}
+			else {
+				List<Object> items = new ArrayList<Object>();
+				reply = items;
+				for (long i = 0; i < count && reply != INCOMPLETE; i++) {
+					Object item = parseReply(in);
+					if (item == INCOMPLETE)
+						reply = INCOMPLETE;
+					else
+						items.add(item);
+				}
+			}
+		}
+		else {
+			throw new ProtocolException("Unknown reply type " + (char) type);
+		}
+		
+		if (reply == INCOMPLETE)
+			in.position(start);
+		return reply;
+	}
+	
+	/**
+	 * Encodes a command.
+	 * 
+	 * @param args The command name and arguments.
+	 * @return a buffer ready to be written.
+	 */
+	public static ByteBuffer command(String... args)
+	{
+		byte[][] encoded = new byte[args.length][];
+		int size = 16;
+		for (int i = 0; i < args.length; i++) {
+			encoded[i] = args[i].getBytes(StandardCharsets.UTF_8);
+			size += encoded[i].length + 16;
+		}
+		
+		ByteBuffer out = ByteBuffer.allocate(size);
+		out.put((byte) '*').put(ascii(args.length)).put(CRLF);
+		for (byte[] arg : encoded)
+			out.put((byte) '$').put(ascii(arg.length)).put(CRLF).put(arg).put(CRLF);
+		out.flip();
+		return out;
+	}
+	
+	public static ByteBuffer simple(String s)
+	{
+		return line('+', s);
+	}
+	
+	public static ByteBuffer error(String message)
+	{
+		return line('-', message);
+	}
+	
+	public static ByteBuffer integer(long value)
+	{
+		return line(':', String.valueOf(value));
+	}
+	
+	/**
+	 * Encodes a bulk string reply.
+	 * 
+	 * @param s The string, or null for a null reply.
+	 * @return a buffer ready to be written.
+	 */
+	public static ByteBuffer bulk(String s)
+	{
+		if (s == null)
+			return line('$', "-1");
+		
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = ByteBuffer.allocate(bytes.length + 16);
+		out.put((byte) '$').put(ascii(bytes.length)).put(CRLF).put(bytes).put(CRLF);
+		out.flip();
+		return out;
+	}
+	
+	/**
+	 * Encodes an array of bulk strings.
+	 * 
+	 * @param items The strings, any of which may be null.
+	 * @return a buffer ready to be written.
+	 */
+	public static ByteBuffer array(String[] items)
+	{
+		ByteBuffer[] parts = new ByteBuffer[items.length];
+		int size = 16;
+		for (int i = 0; i < items.length; i++) {
+			parts[i] = bulk(items[i]);
+			size += parts[i].remaining();
+		}
+		
+		ByteBuffer out = ByteBuffer.allocate(size);
+		out.put((byte) '*').put(ascii(items.length)).put(CRLF);
+		for (ByteBuffer part : parts)
+			out.put(part);
+		out.flip();
+		return out;
+	}
+	
+	private static ByteBuffer line(char type, String s)
+	{
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = ByteBuffer.allocate(bytes.length + 3);
+		out.put((byte) type).put(bytes).put(CRLF);
+		out.flip();
+		return out;
+	}
+	
+	private static byte[] ascii(long value)
+	{
+		return String.valueOf(value).getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Reads a bulk string after its '$'.
+	 * 
+	 * @return the string, null for a null bulk string, or INCOMPLETE.
+	 */
+	private static Object readBulk(ByteBuffer in) throws ProtocolException
+	{
+		long length = readNumber(in);
+		if (length == Long.MIN_VALUE)
+			return INCOMPLETE;
+		if (length < 0)
+			return null;
+		if (length > MAX_BULK_LENGTH)
+			throw new ProtocolException("Bulk string of " + length + " bytes is too long");
+		if (in.remaining() < length + 2)
+			return INCOMPLETE;
+		
+		byte[] bytes = new byte[(int) length];
+		in.get(bytes);
+		in.position(in.position() + 2);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Reads a decimal number terminated by CRLF.
+	 * 
+	 * @return the number, or Long.MIN_VALUE if the CRLF has not arrived yet.
+	 */
+	private static long readNumber(ByteBuffer in) throws ProtocolException
+	{
+		String line = readLine(in);
+		if (line == null)
+			return Long.MIN_VALUE;
+		try {
+			return Long.parseLong(line);
+		}
+		catch (NumberFormatException nfe) {
+			throw new ProtocolException("Bad number " + line);
+		}
+	}
+	
+	/**
+	 * Reads a line terminated by CRLF.
+	 * 
+	 * @return the line without the CRLF, or null if the CRLF has not arrived yet.
+	 */
+	private static String readLine(ByteBuffer in)
+	{
+		for (int i = in.position(); i + 1 < in.limit(); i++) {
+			if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+				byte[] bytes = new byte[i - in.position()];
+				in.get(bytes);
+				in.position(i + 2);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+}
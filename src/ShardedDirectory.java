@@ -0,0 +1,372 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * .ShardedDirectory.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Partitions values across 2^s independent Directories using the s left most bits of the
+ * pseudokey. Each shard is owned by a single worker thread with its own request queue, so every
+ * shard runs single-threaded extendible hashing without locks, and a shard that expands its
+ * directory never stalls the others.
+ *
+ * Each value is hashed once, by the caller's thread. Its shard is picked from the left most bits 
+ * of the pseudokey, and the rest of the pseudokey is handed to the shard, so shards never hash 
+ * the value again.
+ */
+public class ShardedDirectory
+{
+	// Every shard has a worker thread, so at most this many shards are created per processor.
+	private static final int SHARDS_PER_PROCESSOR = 4;
+	
+	private Directory[] shards;
+	private ExecutorService[] workers;
+	private int shardBits;
+	
+	private Hasher<String> h;
+	
+	/**
+	 * Constructs a ShardedDirectory with 2^shardBits shards.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param shardBits number of left most pseudokey bits used to pick a shard.
+	 */
+	public ShardedDirectory(int bucketSizeInBytes, int shardBits)
+	{
+		this(bucketSizeInBytes, shardBits, StringHasher.getInstance());
+	}
+	
+	/**
+	 * Constructs a ShardedDirectory with 2^shardBits shards.
+	 * 
+	 * @param bucketSizeInBytes the size of each bucket.
+	 * @param shardBits number of left most pseudokey bits used to pick a shard, at most 
+	 * getMaxShardBits().
+	 * @param h the hasher used to compute pseudokeys.
+	 */
+	public ShardedDirectory(int bucketSizeInBytes, int shardBits, Hasher<String> h)
+	{
+		int maxShardBits = getMaxShardBits();
+		if (shardBits < 0 || shardBits > maxShardBits)
+			throw new IllegalArgumentException("shardBits must be between 0 and " + maxShardBits);
+		
+		int numShards = 1 << shardBits;
+		this.shards = new Directory[numShards];
+		this.workers = new ExecutorService[numShards];
+		this.shardBits = shardBits;
+		this.h = h;
+		
+		// Every value in a shard shares the same s left most bits, so each shard indexes its
+		// directory with the bits that follow them instead. Only 32 - s bits are left, so a shard
+		// chains rather than doubling on the zeros shifted in. Shards are handed these shifted
+		// pseudokeys, and only hash values themselves to split buckets.
+		Hasher<String> shardHasher = new ShiftedHasher(h, shardBits);
+		for (int i = 0; i < numShards; i++) {
+			this.shards[i] = new Directory(bucketSizeInBytes, shardHasher, Directory.MAX_DEPTH - shardBits);
+			this.workers[i] = Executors.newSingleThreadExecutor();
+		}
+	}
+	
+	/**
+	 * Gets the largest number of shard bits allowed on this machine: enough for 
+	 * SHARDS_PER_PROCESSOR shards per available processor, rounded up to a power of two.
+	 * 
+	 * @return the largest shardBits a ShardedDirectory can be constructed with.
+	 */
+	public static int getMaxShardBits()
+	{
+		int maxShards = SHARDS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+		return Math.min(Directory.MAX_DEPTH, 32 - Integer.numberOfLeadingZeros(maxShards - 1));
+	}
+	
+	/**
+	 * Gets the number of shards.
+	 * 
+	 * @return the number of shards.
+	 */
+	public int getShardCount()
+	{
+		return this.shards.length;
+	}
+	
+	/**
+	 * Gets the global depth of a shard's directory.
+	 * 
+	 * @param shard index of the shard.
+	 * @return the global depth of the shard.
+	 */
+	public int getDepth(final int shard)
+	{
+		return await(submit(shard, new Callable<Integer>() {
+			public Integer call()
+			{
+				return shards[shard].getDepth();
+			}
+		}));
+	}
+	
+	/**
+	 * Finds the shard a value belongs to.
+	 * 
+	 * @param value the value to route.
+	 * @return index of the shard owning value.
+	 */
+	public int shardOf(String value)
+	{
+		return shardOf(this.h.hash(value));
+	}
+	
+	/**
+	 * Finds the shard a pseudokey belongs to.
+	 * 
+	 * @param pseudokey the hash of a value.
+	 * @return index of the shard owning the value.
+	 */
+	private int shardOf(int pseudokey)
+	{
+		return BitUtility.getLeftMostBits(pseudokey, this.shardBits);
+	}
+	
+	/**
+	 * Gets the pseudokey a shard's directory would compute for a value, without hashing it again.
+	 * 
+	 * @param pseudokey the hash of a value.
+	 * @return the pseudokey with the shard bits discarded, as a ShiftedHasher would.
+	 */
+	private int shardPseudokey(int pseudokey)
+	{
+		return pseudokey << this.shardBits;
+	}
+	
+	/**
+	 * Queues an insert of value on its shard's worker.
+	 * 
+	 * @param value Value to insert.
+	 * @return a Future that completes once value has been inserted.
+	 */
+	public Future<Void> insert(final String value)
+	{
+		int pseudokey = this.h.hash(value);
+		int shard = shardOf(pseudokey);
+		final int shardPseudokey = shardPseudokey(pseudokey);
+		final Directory d = this.shards[shard];
+		return submit(shard, new Callable<Void>() {
+			public Void call()
+			{
+				d.insert(value, shardPseudokey);
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * Queues an insert of value on its shard's worker, unless value is already there.
+	 * 
+	 * @param value Value to insert.
+	 * @return a Future of true if value was inserted, false if it was already present.
+	 */
+	public Future<Boolean> insertIfAbsent(final String value)
+	{
+		int pseudokey = this.h.hash(value);
+		int shard = shardOf(pseudokey);
+		final int shardPseudokey = shardPseudokey(pseudokey);
+		final Directory d = this.shards[shard];
+		return submit(shard, new Callable<Boolean>() {
+			public Boolean call()
+			{
+				return d.insertIfAbsent(value, shardPseudokey);
+			}
+		});
+	}
+	
+	/**
+	 * Inserts every value, batching them so each shard's worker receives a single request, which 
+	 * it inserts with Directory.insertAll.
+	 * 
+	 * @param values Values to insert.
+	 */
+	public void insertAll(Collection<String> values)
+	{
+		final List<String> keys = new ArrayList<String>(values);
+		final int[] pseudokeys = new int[keys.size()];
+		List<List<Integer>> batches = route(keys, pseudokeys);
+		List<Future<Void>> pending = new ArrayList<Future<Void>>();
+		
+		for (int i = 0; i < batches.size(); i++) {
+			final List<Integer> batch = batches.get(i);
+			if (batch.isEmpty())
+				continue;
+			
+			final Directory d = this.shards[i];
+			pending.add(submit(i, new Callable<Void>() {
+				public Void call()
+				{
+					List<String> shardKeys = new ArrayList<String>(batch.size());
+					int[] shardPseudokeys = new int[batch.size()];
+					for (int j = 0; j < shardPseudokeys.length; j++) {
+						shardKeys.add(keys.get(batch.get(j)));
+						shardPseudokeys[j] = pseudokeys[batch.get(j)];
+					}
+					
+					d.insertAll(shardKeys, shardPseudokeys);
+					return null;
+				}
+			}));
+		}
+		
+		for (Future<Void> f : pending)
+			await(f);
+	}
+	
+	/**
+	 * Searches for value on its shard.
+	 * 
+	 * @param value The string to search for
+	 * @return true if value is in the table, false otherwise.
+	 */
+	public boolean contains(final String value)
+	{
+		int pseudokey = this.h.hash(value);
+		int shard = shardOf(pseudokey);
+		final int shardPseudokey = shardPseudokey(pseudokey);
+		final Directory d = this.shards[shard];
+		return await(submit(shard, new Callable<Boolean>() {
+			public Boolean call()
+			{
+				return d.contains(value, shardPseudokey);
+			}
+		}));
+	}
+	
+	/**
+	 * Searches for every value, batching them so each shard's worker receives a single request, 
+	 * which it looks up with Directory.containsAll.
+	 * 
+	 * @param values The strings to search for.
+	 * @return whether each value is in the table, in the order of values.
+	 */
+	public boolean[] containsAll(final List<String> values)
+	{
+		final boolean[] result = new boolean[values.size()];
+		final int[] pseudokeys = new int[values.size()];
+		
+		// Route positions rather than values so results can be written back in input order.
+		List<List<Integer>> batches = route(values, pseudokeys);
+		List<Future<Void>> pending = new ArrayList<Future<Void>>();
+		for (int i = 0; i < batches.size(); i++) {
+			final List<Integer> batch = batches.get(i);
+			if (batch.isEmpty())
+				continue;
+			
+			final Directory d = this.shards[i];
+			pending.add(submit(i, new Callable<Void>() {
+				public Void call()
+				{
+					List<String> shardKeys = new ArrayList<String>(batch.size());
+					int[] shardPseudokeys = new int[batch.size()];
+					for (int j = 0; j < shardPseudokeys.length; j++) {
+						shardKeys.add(values.get(batch.get(j)));
+						shardPseudokeys[j] = pseudokeys[batch.get(j)];
+					}
+					
+					boolean[] found = d.containsAll(shardKeys, shardPseudokeys);
+					for (int j = 0; j < found.length; j++)
+						result[batch.get(j)] = found[j];
+					return null;
+				}
+			}));
+		}
+		
+		for (Future<Void> f : pending)
+			await(f);
+		
+		return result;
+	}
+	
+	/**
+	 * Searches for value on its shard and counts the number of probes along the way.
+	 * 
+	 * @param value The string to search for
+	 * @return the number of probes to find value
+	 */
+	public int countProbes(final String value)
+	{
+		int pseudokey = this.h.hash(value);
+		int shard = shardOf(pseudokey);
+		final int shardPseudokey = shardPseudokey(pseudokey);
+		final Directory d = this.shards[shard];
+		return await(submit(shard, new Callable<Integer>() {
+			public Integer call()
+			{
+				return d.countProbes(value, shardPseudokey);
+			}
+		}));
+	}
+	
+	/**
+	 * Stops every shard worker once its queued requests have been processed.
+	 */
+	public void shutdown()
+	{
+		for (ExecutorService worker : this.workers)
+			worker.shutdown();
+	}
+	
+	/**
+	 * Hashes every value once and splits their positions into one batch per shard.
+	 * 
+	 * @param values Values to route.
+	 * @param pseudokeys Filled with the pseudokey of each value as its shard computes it.
+	 * @return a list containing the positions in values of each shard's values.
+	 */
+	private List<List<Integer>> route(List<String> values, int[] pseudokeys)
+	{
+		List<List<Integer>> batches = new ArrayList<List<Integer>>();
+		for (int i = 0; i < this.shards.length; i++)
+			batches.add(new ArrayList<Integer>());
+		
+		for (int i = 0; i < pseudokeys.length; i++) {
+			int pseudokey = this.h.hash(values.get(i));
+			batches.get(shardOf(pseudokey)).add(i);
+			pseudokeys[i] = shardPseudokey(pseudokey);
+		}
+		
+		return batches;
+	}
+	
+	private <T> Future<T> submit(int shard, Callable<T> request)
+	{
+		return this.workers[shard].submit(request);
+	}
+	
+	/**
+	 * Waits for a shard request to complete.
+	 * 
+	 * @param f the pending request.
+	 * @return the result of the request.
+	 */
+	private static <T> T await(Future<T> f)
+	{
+		try {
+			return f.get();
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for shard worker", ie);
+		}
+		catch (ExecutionException ee) {
+			ErrorLogger.logException("ShardedDirectory.await(Future)",
+					"Shard worker failed to process request.", ee);
+			throw new IllegalStateException(ee.getCause());
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * .ShiftedHasher.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Discards the left most bits of another hasher's pseudokeys. Used by directories that only hold
+ * values sharing those bits, so they index on the bits that follow them instead.
+ */
+public class ShiftedHasher implements Hasher<String>
+{
+	private Hasher<String> h;
+	private int shift;
+	
+	/**
+	 * Constructs a ShiftedHasher.
+	 * 
+	 * @param h the hasher whose pseudokeys are shifted.
+	 * @param shift number of left most bits to discard.
+	 */
+	public ShiftedHasher(Hasher<String> h, int shift)
+	{
+		this.h = h;
+		this.shift = shift;
+	}
+	
+	/**
+	 * Hashes key with the wrapped hasher and discards its left most bits.
+	 * 
+	 * @param key The key to hash.
+	 */
+	public int hash(String key)
+	{
+		return this.h.hash(key) << this.shift;
+	}
+}
@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .TableClient.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * A connection to a TableServer. Single commands wait for their reply. pipeline(List) sends a 
+ * batch of commands with one gathering write and then reads all of their replies, so the batch 
+ * costs one round trip.
+ *
+ * Not thread-safe. Each thread uses its own connection.
+ */
+public class TableClient
+{
+	private SocketChannel channel;
+	private ByteBuffer in;
+	
+	/**
+	 * Connects to a TableServer.
+	 * 
+	 * @param host Host the server runs on.
+	 * @param port Port the server listens on.
+	 * @throws IOException when the server cannot be reached.
+	 */
+	public TableClient(String host, int port) throws IOException
+	{
+		try {
+			this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+			this.channel.socket().setTcpNoDelay(true);
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("TableClient(String, int)",
+									 "Cannot connect to " + host + ":" + port,
+									 ioe);
+			throw ioe;
+		}
+		this.in = ByteBuffer.allocate(64 * 1024);
+		this.in.flip();
+	}
+	
+	/**
+	 * Adds a key.
+	 * 
+	 * @param key Key to add.
+	 * @throws IOException when the server cannot be reached.
+	 */
+	public void set(String key) throws IOException
+	{
+		call("SET", key);
+	}
+	
+	/**
+	 * Looks up a key.
+	 * 
+	 * @param key Key to look up.
+	 * @return the stored key, or null if it is not in the table.
+	 * @throws IOException when the server cannot be reached.
+	 */
+	public String get(String key) throws IOException
+	{
+		return (String) call("GET", key);
+	}
+	
+	/**
+	 * Looks up several keys.
+	 * 
+	 * @param keys Keys to look up.
+	 * @return the stored copy of each key, or null if it is not in the table.
+	 * @throws IOException when the server cannot be reached.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<String> mget(String... keys) throws IOException
+	{
+		return (List<String>) call(prepend("MGET", keys));
+	}
+	
+	/**
+	 * Counts how many of the keys are in the table.
+	 * 
+	 * @param keys Keys to look up.
+	 * @return the number of keys found.
+	 * @throws IOException when the server cannot be reached.
+	 */
+	public long exists(String... keys) throws IOException
+	{
+		return (Long) call(prepend("EXISTS", keys));
+	}
+	
+	/**
+	 * Removes keys.
+	 * 
+	 * @param keys Keys to remove.
+	 * @return the number of keys removed.
+	 * @throws IOException when the server cannot be reached.
+	 */
+	public long del(String... keys) throws IOException
+	{
+		return (Long) call(prepend("DEL", keys));
+	}
+	
+	/**
+	 * Sends a command and waits for its reply.
+	 * 
+	 * @param args The command name and arguments.
+	 * @return the reply, decoded as by RespCodec.parseReply.
+	 * @throws IOException when the server cannot be reached.
+	 * @throws IllegalStateException when the server replies with an error.
+	 */
+	public Object call(String... args) throws IOException
+	{
+		List<String[]> commands = new ArrayList<String[]>();
+		commands.add(args);
+		Object reply = pipeline(commands).get(0);
+		if (reply instanceof RespCodec.ErrorReply)
+			throw new IllegalStateException(((RespCodec.ErrorReply) reply).getMessage());
+		return reply;
+	}
+	
+	/**
+	 * Sends a batch of commands at once and reads their replies.
+	 * 
+	 * @param commands The commands, each a name followed by arguments.
+	 * @return the reply to each command, decoded as by RespCodec.parseReply. Error replies are 
+	 * returned as RespCodec.ErrorReply rather than thrown.
+	 * @throws IOException when the server cannot be reached.
+	 */
+	public List<Object> pipeline(List<String[]> commands) throws IOException
+	{
+		ByteBuffer[] out = new ByteBuffer[commands.size()];
+		long remaining = 0;
+		for (int i = 0; i < out.length; i++) {
+			out[i] = RespCodec.command(commands.get(i));
+			remaining += out[i].remaining();
+		}
+		while (remaining > 0)
+			remaining -= this.channel.write(out);
+		
+		List<Object> replies = new ArrayList<Object>(commands.size());
+		while (replies.size() < commands.size()) {
+			Object reply = RespCodec.parseReply(this.in);
+			if (reply != RespCodec.INCOMPLETE) {
+				replies.add(reply);
+				continue;
+			}
+			
+			// Keep the partial reply, growing the buffer if it fills the whole buffer.
+			this.in.compact();
+			if (! this.in.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(this.in.capacity() * 2);
+				this.in.flip();
+				larger.put(this.in);
+				this.in = larger;
+			}
+			if (this.channel.read(this.in) < 0)
+				throw new ProtocolException("Server closed the connection");
+			this.in.flip();
+		}
+		return replies;
+	}
+	
+	/**
+	 * Closes the connection.
+	 * 
+	 * @throws IOException when the connection cannot be closed.
+	 */
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+	
+	private static String[] prepend(String name, String[] keys)
+	{
+		String[] args = new String[keys.length + 1];
+		args[0] = name;
+		System.arraycopy(keys, 0, args, 1, keys.length);
+		return args;
+	}
+}
@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * .TableLoadTest.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Drives a TableServer on localhost from many client connections, each sending pipelined batches 
+ * of GET and SET commands, and reports throughput and per-batch latency.
+ *
+ * Usage: java TableLoadTest [connections] [pipeline depth] [seconds] [keys] [set fraction]
+ * A server is started in the same process with 256 byte buckets.
+ */
+public class TableLoadTest
+{
+	public static void main(String[] args) throws Exception
+	{
+		final int connections = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+		final int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 32;
+		final double seconds = (args.length > 2) ? Double.parseDouble(args[2]) : 10;
+		final int keyCount = (args.length > 3) ? Integer.parseInt(args[3]) : 100000;
+		final double setFraction = (args.length > 4) ? Double.parseDouble(args[4]) : 0.1;
+		
+		final TableServer server = new TableServer(new Directory(256), 0);
+		server.start();
+		System.out.println("Server on port " + server.getPort() + 
+				(server.isVirtual() ? " with virtual threads" : " with platform threads"));
+		
+		// Load half of the keys, so about half of the lookups hit.
+		TableClient loader = new TableClient("localhost", server.getPort());
+		List<String[]> batch = new ArrayList<String[]>();
+		for (int i = 0; i < keyCount; i += 2) {
+			batch.add(new String[] {"SET", Workload.keyOf(i)});
+			if (batch.size() == 1000) {
+				loader.pipeline(batch);
+				batch.clear();
+			}
+		}
+		loader.pipeline(batch);
+		loader.close();
+		
+		final long end = System.nanoTime() + (long) (seconds * 1e9);
+		final AtomicLong ops = new AtomicLong();
+		final LatencyHistogram[] histograms = new LatencyHistogram[connections];
+		Thread[] threads = new Thread[connections];
+		for (int c = 0; c < connections; c++) {
+			final int id = c;
+			histograms[c] = new LatencyHistogram();
+			threads[c] = new Thread(new Runnable() {
+				public void run()
+				{
+					Random random = new Random(id);
+					try {
+						TableClient client = new TableClient("localhost", server.getPort());
+						List<String[]> commands = new ArrayList<String[]>(depth);
+						while (System.nanoTime() < end) {
+							commands.clear();
+							for (int i = 0; i < depth; i++) {
+								String key = Workload.keyOf(random.nextInt(keyCount));
+								commands.add(new String[] {(random.nextDouble() < setFraction) ? "SET" : "GET", key});
+							}
+							long start = System.nanoTime();
+							client.pipeline(commands);
+							histograms[id].record(System.nanoTime() - start);
+							ops.addAndGet(depth);
+						}
+						client.close();
+					}
+					catch (IOException ioe) {
+						ErrorLogger.logException("TableLoadTest.main(String[])", "Client " + id + " failed", ioe);
+					}
+				}
+			});
+			threads[c].start();
+		}
+		
+		LatencyHistogram total = new LatencyHistogram();
+		for (int c = 0; c < connections; c++) {
+			threads[c].join();
+			total.add(histograms[c]);
+		}
+		server.close();
+		
+		System.out.printf("%d connections, pipeline depth %d: %.0f ops/s%n", connections, depth, ops.get() / seconds);
+		System.out.printf("Batch latency: p50 %.1fus  p99 %.1fus  p99.9 %.1fus  max %.1fus%n", 
+				total.getPercentile(50) / 1e3, total.getPercentile(99) / 1e3, 
+				total.getPercentile(99.9) / 1e3, total.getMax() / 1e3);
+	}
+}
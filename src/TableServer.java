@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * .TableServer.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Serves a Directory over TCP with a subset of the Redis protocol, so many processes can share one 
+ * table. The table is a set of strings, so a key is its own value:
+ *
+ *   PING                 +PONG
+ *   SET key              +OK, adding key if it is not already there. Keys must fit in a bucket.
+ *   GET key              the stored key, or null
+ *   MGET key [key ...]   an array of stored keys or nulls
+ *   EXISTS key [key ...] the number of keys present
+ *   DEL key [key ...]    the number of keys removed
+ *
+ * Every connection is served by its own thread: a virtual thread when the JVM has them (Java 21 
+ * and later), otherwise a pooled platform thread. Clients may pipeline commands. Everything that 
+ * has arrived is decoded at once, and consecutive lookups are answered by a single getAll under 
+ * one read lock, while consecutive changes share one write lock. The replies to a batch are sent 
+ * with one gathering write.
+ */
+public class TableServer
+{
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private Directory d;
+	private int maxKeyLength;
+	private ReadWriteLock lock;
+	private ServerSocketChannel server;
+	private ExecutorService connections;
+	private boolean virtual;
+	private Thread acceptor;
+	
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 2) {
+			System.err.println("Usage: java TableServer <port> <bucket size in bytes>");
+			System.exit(-1);
+		}
+		
+		TableServer server = new TableServer(new Directory(Integer.parseInt(args[1])), Integer.parseInt(args[0]));
+		server.start();
+		System.out.println("Serving on port " + server.getPort() + 
+				(server.isVirtual() ? " with virtual threads" : " with platform threads"));
+	}
+	
+	/**
+	 * Constructs a TableServer and binds its port. Call start() to accept connections.
+	 * 
+	 * @param d Directory to serve. It must not be used by anything else while being served.
+	 * @param port Port to listen on, or 0 for any free port.
+	 * @throws IOException when the port cannot be bound.
+	 */
+	public TableServer(Directory d, int port) throws IOException
+	{
+		this.d = d;
+		this.lock = new ReentrantReadWriteLock();
+		
+		// A key has to fit in a bucket along with its length, or inserting it never stops splitting.
+		this.maxKeyLength = d.getBucket(0).getCapacity() - 1;
+		try {
+			this.server = ServerSocketChannel.open();
+			this.server.bind(new InetSocketAddress(port));
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("TableServer(Directory, int)",
+									 "Cannot listen on port " + port,
+									 ioe);
+			throw ioe;
+		}
+		
+		// Virtual threads are looked up reflectively so the server still runs on older JVMs.
+		try {
+			this.connections = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			this.virtual = true;
+		}
+		catch (ReflectiveOperationException roe) {
+			this.connections = Executors.newCachedThreadPool();
+			this.virtual = false;
+		}
+	}
+	
+	/**
+	 * Starts accepting connections on a background thread.
+	 */
+	public void start()
+	{
+		this.acceptor = new Thread(new Runnable() {
+			public void run()
+			{
+				accept();
+			}
+		}, "TableServer-accept");
+		this.acceptor.start();
+	}
+	
+	/**
+	 * Gets the port the server is listening on.
+	 * 
+	 * @return the port.
+	 */
+	public int getPort()
+	{
+		return this.server.socket().getLocalPort();
+	}
+	
+	/**
+	 * Checks if connections are served by virtual threads.
+	 * 
+	 * @return true for virtual threads, false for platform threads.
+	 */
+	public boolean isVirtual()
+	{
+		return this.virtual;
+	}
+	
+	/**
+	 * Stops accepting connections and closes the port. Open connections are closed as their 
+	 * threads are interrupted.
+	 * 
+	 * @throws IOException when the port cannot be closed.
+	 */
+	public void close() throws IOException
+	{
+		this.server.close();
+		this.connections.shutdownNow();
+	}
+	
+	private void accept()
+	{
+		while (true) {
+			final SocketChannel client;
+			try {
+				client = this.server.accept();
+			}
+			catch (ClosedChannelException cce) {
+				return;
+			}
+			catch (IOException ioe) {
+				ErrorLogger.logException("TableServer.accept(void)", "Cannot accept a connection", ioe);
+				return;
+			}
+			
+			this.connections.execute(new Runnable() {
+				public void run()
+				{
+					serve(client);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Answers commands from one client until it disconnects.
+	 * 
+	 * @param client The client's connection.
+	 */
+	private void serve(SocketChannel client)
+	{
+		ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+		List<String[]> commands = new ArrayList<String[]>();
+		try {
+			client.socket().setTcpNoDelay(true);
+			while (client.read(in) >= 0) {
+				in.flip();
+				String[] command;
+				while ((command = RespCodec.parseCommand(in)) != null)
+					commands.add(command);
+				in.compact();
+				
+				// A command larger than the buffer needs a larger buffer to arrive in.
+				if (! in.hasRemaining()) {
+					ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+					in.flip();
+					larger.put(in);
+					in = larger;
+				}
+				
+				if (commands.isEmpty())
+					continue;
+				
+				ByteBuffer[] replies = execute(commands);
+				commands.clear();
+				long remaining = 0;
+				for (ByteBuffer reply : replies)
+					remaining += reply.remaining();
+				while (remaining > 0)
+					remaining -= client.write(replies);
+			}
+		}
+		catch (ProtocolException pe) {
+			try {
+				client.write(RespCodec.error("ERR " + pe.getMessage()));
+			}
+			catch (IOException ioe) {
+				// The connection is being closed either way.
+			}
+		}
+		catch (IOException ioe) {
+			// The client went away.
+		}
+		finally {
+			try {
+				client.close();
+			}
+			catch (IOException ioe) {
+				ErrorLogger.logException("TableServer.serve(SocketChannel)", "Cannot close a connection", ioe);
+			}
+		}
+	}
+	
+	/**
+	 * Executes a batch of pipelined commands in order. Consecutive lookups run as one batch 
+	 * lookup, and consecutive changes under one lock.
+	 * 
+	 * @param commands The commands.
+	 * @return the reply to each command.
+	 */
+	ByteBuffer[] execute(List<String[]> commands)
+	{
+		ByteBuffer[] replies = new ByteBuffer[commands.size()];
+		int from = 0;
+		while (from < commands.size()) {
+			boolean change = isChange(commands.get(from));
+			int to = from + 1;
+			while (to < commands.size() && isChange(commands.get(to)) == change)
+				to++;
+			
+			if (change)
+				executeChanges(commands, from, to, replies);
+			else
+				executeLookups(commands, from, to, replies);
+			from = to;
+		}
+		return replies;
+	}
+	
+	private static boolean isChange(String[] command)
+	{
+		String name = command[0].toUpperCase(Locale.ROOT);
+		return name.equals("SET") || name.equals("DEL");
+	}
+	
+	private void executeLookups(List<String[]> commands, int from, int to, ByteBuffer[] replies)
+	{
+		// Every key looked up by the run, in order.
+		List<String> keys = new ArrayList<String>();
+		for (int i = from; i < to; i++) {
+			String[] command = commands.get(i);
+			String name = command[0].toUpperCase(Locale.ROOT);
+			if (name.equals("GET") || name.equals("MGET") || name.equals("EXISTS"))
+				keys.addAll(Arrays.asList(command).subList(1, command.length));
+		}
+		
+		String[] found;
+		this.lock.readLock().lock();
+		try {
+			found = this.d.getAll(keys);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+		
+		int k = 0;
+		for (int i = from; i < to; i++) {
+			String[] command = commands.get(i);
+			String name = command[0].toUpperCase(Locale.ROOT);
+			int args = command.length - 1;
+			
+			if (name.equals("PING")) {
+				replies[i] = RespCodec.simple("PONG");
+			}
+			else if (name.equals("GET")) {
+				replies[i] = (args == 1) ? RespCodec.bulk(found[k]) : wrongArguments(name);
+			}
+			else if (name.equals("MGET")) {
+				replies[i] = (args >= 1) ? RespCodec.array(Arrays.copyOfRange(found, k, k + args)) : wrongArguments(name);
+			}
+			else if (name.equals("EXISTS")) {
+				int count = 0;
+				for (int j = k; j < k + args; j++) {
+					if (found[j] != null)
+						count++;
+				}
+				replies[i] = (args >= 1) ? RespCodec.integer(count) : wrongArguments(name);
+			}
+			else {
+				replies[i] = RespCodec.error("ERR unknown command '" + command[0] + "'");
+				continue;
+			}
+			
+			if (! name.equals("PING"))
+				k += args;
+		}
+	}
+	
+	private void executeChanges(List<String[]> commands, int from, int to, ByteBuffer[] replies)
+	{
+		this.lock.writeLock().lock();
+		try {
+			for (int i = from; i < to; i++) {
+				String[] command = commands.get(i);
+				String name = command[0].toUpperCase(Locale.ROOT);
+				
+				if (name.equals("SET")) {
+					if (command.length != 2) {
+						replies[i] = wrongArguments(name);
+						continue;
+					}
+					if (command[1].length() > this.maxKeyLength) {
+						replies[i] = RespCodec.error("ERR keys may be at most " + this.maxKeyLength + " characters");
+						continue;
+					}
+					this.d.insertIfAbsent(command[1]);
+					replies[i] = RespCodec.simple("OK");
+				}
+				else {
+					if (command.length < 2) {
+						replies[i] = wrongArguments(name);
+						continue;
+					}
+					int removed = 0;
+					for (int j = 1; j < command.length; j++) {
+						if (this.d.remove(command[j]))
+							removed++;
+					}
+					replies[i] = RespCodec.integer(removed);
+				}
+			}
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+	
+	private static ByteBuffer wrongArguments(String name)
+	{
+		return RespCodec.error("ERR wrong number of arguments for '" + name + "'");
+	}
+}
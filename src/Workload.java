@@ -0,0 +1,303 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * .Workload.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * Runs a mix of lookups, inserts and removes against a HashIndex from several threads, and 
+ * reports throughput, latency percentiles and how the index's structure changes over time.
+ *
+ * The load is open-loop by default: every thread has a schedule of when each of its operations 
+ * should start, at the target rate, and latency is measured from that intended start. An 
+ * operation that is delayed by a slow one before it is charged for the wait, so stalls are not 
+ * hidden by the driver slowing down with the directory (coordinated omission). The time each 
+ * operation itself took is reported separately as service time. In closed-loop mode threads run 
+ * operations back to back, and the missing operations are filled in by 
+ * LatencyHistogram.recordCorrected.
+ *
+ * Indexes are not thread-safe, so lookups share a read lock and changes take the write lock.
+ *
+ * Arguments are name=value pairs:
+ *   threads=4 rate=200000 duration=10 mode=open|closed
+ *   records=100000                      (keys inserted before the run)
+ *   read=0.9 insert=0.05 remove=0.05    (fractions of operations, summing to 1)
+ *   dist=uniform|zipfian|latest|hotspot (which keys lookups and removes use, see KeyChooser)
+ *   index=extendible|linear|frontcoded  (see DirectoryBenchmark.newIndex)
+ *   bucketSize=256 report=1             (seconds between progress lines)
+ */
+public class Workload
+{
+	private Map<String, String> options;
+	private HashIndex d;
+	private ReadWriteLock lock;
+	
+	// Keys are numbered in insertion order, and this is the number of the next one.
+	private AtomicLong keyCount;
+	private LongAdder completed;
+	
+	public static void main(String[] args) throws InterruptedException
+	{
+		Map<String, String> options = new TreeMap<String, String>();
+		options.put("threads", "4");
+		options.put("rate", "200000");
+		options.put("duration", "10");
+		options.put("mode", "open");
+		options.put("records", "100000");
+		options.put("read", "0.9");
+		options.put("insert", "0.05");
+		options.put("remove", "0.05");
+		options.put("dist", "zipfian");
+		options.put("index", "extendible");
+		options.put("bucketSize", "256");
+		options.put("report", "1");
+		
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0 || ! options.containsKey(arg.substring(0, eq))) {
+				System.err.println("Usage: java Workload [name=value ...]");
+				System.err.println("Options and defaults: " + options);
+				System.exit(-1);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		
+		new Workload(options).run();
+	}
+	
+	/**
+	 * Constructs a Workload.
+	 * 
+	 * @param options Options as described in the class comment.
+	 */
+	public Workload(Map<String, String> options)
+	{
+		this.options = options;
+		this.d = DirectoryBenchmark.newIndex(this.options.get("index"), getInt("bucketSize"));
+		this.lock = new ReentrantReadWriteLock();
+		this.keyCount = new AtomicLong();
+		this.completed = new LongAdder();
+	}
+	
+	/**
+	 * Gets the key with the given number. Keys are spread over the pseudokey space like real keys 
+	 * would be, rather than sharing a long common prefix.
+	 * 
+	 * @param n Number of the key.
+	 * @return the key.
+	 */
+	public static String keyOf(long n)
+	{
+		return "user" + Long.toUnsignedString(MixHasher.mix64(n), 36);
+	}
+	
+	/**
+	 * Loads the directory, runs the workload, and prints the results.
+	 * 
+	 * @throws InterruptedException when interrupted while waiting for the workers.
+	 */
+	public void run() throws InterruptedException
+	{
+		int threads = getInt("threads");
+		long durationNanos = (long) (getDouble("duration") * 1e9);
+		long reportNanos = (long) (getDouble("report") * 1e9);
+		long intervalNanos = (long) (threads * 1e9 / getDouble("rate"));
+		boolean open = this.options.get("mode").equals("open");
+		
+		load(getInt("records"));
+		System.out.println("Loaded " + this.keyCount.get() + " keys: " + this.d.getBucketCount() + " buckets, " + 
+				this.d.getSizeInBytes() + " bytes");
+		
+		long start = System.nanoTime() + 10000000L;
+		long end = start + durationNanos;
+		List<Worker> workers = new ArrayList<Worker>();
+		for (int i = 0; i < threads; i++) {
+			// Stagger the schedules so the threads do not all start operations at the same time.
+			Worker w = new Worker(i, start + i * intervalNanos / threads, end, intervalNanos, open);
+			workers.add(w);
+			w.start();
+		}
+		
+		System.out.printf("%8s %12s %6s %10s %10s %14s %10s %8s%n", 
+				"time(s)", "ops/s", "depth", "length", "buckets", "bytes", "splits", "expands");
+		long lastCompleted = 0;
+		long lastReport = start;
+		while (System.nanoTime() < end) {
+			LockSupport.parkNanos(Math.min(reportNanos, end - System.nanoTime()));
+			long now = System.nanoTime();
+			long done = this.completed.sum();
+			
+			// Read under the lock, since an index may be mid-split otherwise.
+			int depth, length, buckets;
+			long bytes, splits, expands;
+			this.lock.readLock().lock();
+			try {
+				depth = this.d.getDepth();
+				length = this.d.getLength();
+				buckets = this.d.getBucketCount();
+				bytes = this.d.getSizeInBytes();
+				splits = this.d.getSplitCount();
+				expands = this.d.getExpandCount();
+			}
+			finally {
+				this.lock.readLock().unlock();
+			}
+			System.out.printf("%8.1f %12.0f %6d %10d %10d %14d %10d %8d%n", (now - start) / 1e9, 
+					(done - lastCompleted) * 1e9 / Math.max(1, now - lastReport), 
+					depth, length, buckets, bytes, splits, expands);
+			lastCompleted = done;
+			lastReport = now;
+		}
+		
+		LatencyHistogram latency = new LatencyHistogram();
+		LatencyHistogram service = new LatencyHistogram();
+		for (Worker w : workers) {
+			w.join();
+			latency.add(w.latency);
+			service.add(w.service);
+		}
+		
+		long ops = service.getCount();
+		System.out.println();
+		System.out.printf("Operations: %d in %.1fs, %.0f ops/s (target %s)%n", ops, durationNanos / 1e9, 
+				ops * 1e9 / durationNanos, this.options.get("rate"));
+		printLatency(open ? "Latency (from intended start)" : "Latency (corrected)", latency);
+		printLatency("Service time", service);
+		System.out.println();
+		System.out.print(this.d.getStats());
+	}
+	
+	/**
+	 * Inserts the first count keys.
+	 */
+	private void load(int count)
+	{
+		List<String> batch = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			batch.add(keyOf(this.keyCount.getAndIncrement()));
+			if (batch.size() == 65536 || i == count - 1) {
+				this.d.insertAll(batch);
+				batch.clear();
+			}
+		}
+	}
+	
+	private void printLatency(String title, LatencyHistogram h)
+	{
+		System.out.printf("%-30s p50 %8.1fus  p99 %8.1fus  p99.9 %8.1fus  max %8.1fus  mean %8.1fus%n", 
+				title, h.getPercentile(50) / 1e3, h.getPercentile(99) / 1e3, h.getPercentile(99.9) / 1e3, 
+				h.getMax() / 1e3, h.getMean() / 1e3);
+	}
+	
+	private int getInt(String name)
+	{
+		return Integer.parseInt(this.options.get(name));
+	}
+	
+	private double getDouble(String name)
+	{
+		return Double.parseDouble(this.options.get(name));
+	}
+	
+	/**
+	 * Runs operations on its own schedule until the end of the run.
+	 */
+	private class Worker extends Thread
+	{
+		private long start;
+		private long end;
+		private long interval;
+		private boolean open;
+		
+		private Random random;
+		private KeyChooser chooser;
+		private double read;
+		private double insert;
+		
+		LatencyHistogram latency = new LatencyHistogram();
+		LatencyHistogram service = new LatencyHistogram();
+		
+		Worker(int id, long start, long end, long interval, boolean open)
+		{
+			super("Workload-" + id);
+			this.start = start;
+			this.end = end;
+			this.interval = interval;
+			this.open = open;
+			this.random = new Random(id);
+			this.chooser = KeyChooser.create(Workload.this.options.get("dist"), id);
+			this.read = getDouble("read");
+			this.insert = getDouble("insert");
+		}
+		
+		public void run()
+		{
+			for (long i = 0; ; i++) {
+				long intended = this.start + i * this.interval;
+				long now = System.nanoTime();
+				if (this.open) {
+					if (intended >= this.end)
+						return;
+					while (now < intended) {
+						LockSupport.parkNanos(intended - now);
+						now = System.nanoTime();
+					}
+				}
+				else if (now >= this.end) {
+					return;
+				}
+				
+				operate();
+				long done = System.nanoTime();
+				
+				if (this.open)
+					this.latency.record(done - intended);
+				else
+					this.latency.recordCorrected(done - now, this.interval);
+				this.service.record(done - now);
+				Workload.this.completed.increment();
+			}
+		}
+		
+		private void operate()
+		{
+			double op = this.random.nextDouble();
+			if (op < this.read) {
+				String key = keyOf(this.chooser.next(Workload.this.keyCount.get()));
+				Workload.this.lock.readLock().lock();
+				try {
+					Workload.this.d.contains(key);
+				}
+				finally {
+					Workload.this.lock.readLock().unlock();
+				}
+			}
+			else {
+				boolean inserting = op < this.read + this.insert;
+				String key = keyOf(inserting ? Workload.this.keyCount.getAndIncrement() 
+						: this.chooser.next(Workload.this.keyCount.get()));
+				Workload.this.lock.writeLock().lock();
+				try {
+					if (inserting)
+						Workload.this.d.insert(key);
+					else
+						Workload.this.d.remove(key);
+				}
+				finally {
+					Workload.this.lock.writeLock().unlock();
+				}
+			}
+		}
+	}
+}
@@ -1,199 +1,431 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.ArrayList;
-
-/**
- * .as1.java
- *
- * @author Chris Nguyen
- */
-
-/**
- * CPSC335 Assignment 1
- * 
- * Performs the procedure outlined in the assignment specifications under the "Program" heading:
- * http://pages.cpsc.ucalgary.ca/~marina/335/asmt1_335_2013.doc
- */
-public class as1 
-{	
-	// TODO: Set this flag to true to print out debug information after each insertion/search.
-	public static boolean DEBUG = false;
-	
-	/**
-	 * Validates arg0, the file of keys.
-	 * @param arg0 File name with keys to hash
-	 * @return true if the file can be opened and read, false otherwise.
-	 */
-	public static boolean checkArg0(String arg0)
-	{
-		if (arg0 != null) {
-			File f = new File(arg0);
-			if (f.exists() && f.canRead())
-				return true;
-		}
-		return false;
-	}
-	
-	/**
-	 * Validates arg1, the number of keys to hash. The number of keys must be at least one.
-	 * @param arg1 Number of keys to hash
-	 * @return true if the number of keys is at least one, false otherwise.
-	 */
-	public static boolean checkArg1(String arg1)
-	{
-		if (arg1 != null) {
-			try {
-				if (Integer.parseInt(arg1) >= 1)
-					return true;
-			}
-			catch (NumberFormatException nfe) {
-				return false;
-			}
-		}
-		return false;
-	}
-	
-	/** Validates arg2, the size of the bucket in bytes. The size must be large enough to contain
-	 * the longest key in the file, plus 1 to store it's length.
-	 * @param arg2 Size of the bucket in bytes.
-	 * @param longestKey The length of the longest key.
-	 * @return true if arg2 >= longestKey+1, false otherwise
-	 */
-	public static boolean checkArg2(String arg2, int longestKey)
-	{
-		if (arg2 != null) {
-			try {
-				if (Integer.parseInt(arg2) >= longestKey+1)
-					return true;
-			}
-			catch (NumberFormatException nfe) {
-				return false;
-			}
-		}
-		return false;
-	}
-	
-	/**
-	 * Prints usage command to the terminal. Exits the program.
-	 */
-	public static void usage()
-	{
-		System.out.println("Usage:");
-		System.out.println("\tas1 <file> <number of keys to hash> <bucket size (bytes)>");
-		System.out.println("file - ../input/<name of key file here>");
-		System.out.println("number of keys to hash - must be at least 1");
-		System.out.println("bucket size - must be large enough to hold the longest key in file");
-		System.out.println("\nAborting program.");
-		return;
-	}
-	
-	/**
-	 * Reads lines lines from fileName, and inserts them into keyList.
-	 * 
-	 * @param keyList ArrayList to insert read keys into.
-	 * @param fileName File to read keys from.
-	 * @param lines Number of lines to read.
-	 * @return The length of the longest key.
-	 */
-	private static int readFile(ArrayList<String> keyList, String fileName, int lines)
-	{
-		if (!checkArg0(fileName))
-			return -1;
-		
-		try {
-			KeyReader reader = new KeyReader(fileName);
-			return reader.readLines(keyList, lines);
-		}
-		catch (FileNotFoundException fnfe) {
-			ErrorLogger.logException("as1.readFile", "Invalid file path: " + fileName, fnfe);
-			return -1;
-		}
-		catch (IOException ioe) {
-			ErrorLogger.logException("as1.readFile", "Corrupted file: " + fileName, ioe);
-			return -1;
-		}
-	}
-	
-	public static void main(String[] args)
-	{	
-		// Validate the file path and the number of keys to hash (args 0 and 1 respectively)
-		if (args.length != 3 || !checkArg0(args[0]) || !checkArg1(args[1])) {
-			usage();
-			System.exit(0);
-		}
-		String keyFile = args[0];
-		int numberOfKeysToHash = Integer.parseInt(args[1]);
-		
-		// Read all keys
-		ArrayList<String> keys = new ArrayList<String>();
-		int longestKey = readFile(keys, keyFile, numberOfKeysToHash);
-		if (longestKey <= 0) {
-			usage();
-			System.exit(-1);
-		}
-		
-		// Ensure the specified bucket size is large enough to contain the longest key
-		if (!checkArg2(args[2], longestKey)) {
-			usage();
-			System.exit(0);
-		}
-		
-		// Create a directory
-		int bucketSize = Integer.parseInt(args[2]);
-		Directory d = new Directory(bucketSize);
-		
-		// Insert all keys
-		try {
-			StringHasher h = StringHasher.getInstance();
-			
-			for (String k : keys) {				
-				d.insert(k);
-				
-				if (as1.DEBUG) {
-					// Print the hash value of k
-					int hashValue = h.hash(k.getBytes()).intValue();
-					String hashInBinary = String.format("%32s", 
-							Integer.toBinaryString(hashValue)).replace(' ', '0');
-					System.out.println(String.format("Hashed %s to:\t%s", k, hashInBinary));
-					
-					// Print directory after inserting
-					System.out.println("Directory inserting " + k + ":");
-					d.print();
-					System.out.println();
-				}
-			}
-		}
-		catch (OutOfMemoryError oome) {
-			ErrorLogger.logError("as1.main(String[])", 
-					"Not enough memory to expand directory to length " + d.getLength() + 
-						" (depth = " + d.getDepth() + "). " + 
-							"Cannot expand directory further. Aborting program.", oome);
-			System.exit(-1);
-		}
-		
-		// Print the results:
-		//	1-Final directory
-		//	2-Probe count
-		System.out.println("\n========================= RESULTS =========================");
-		
-		System.out.println("Final directory after inserting all "+keys.size()+" keys:\n");
-		d.print();
-		
-		System.out.println();
-		
-		// Search for keys and count probes
-		int probes = 0, totalProbes = 0;
-		for (String k : keys) {
-			probes = d.countProbes(k);
-			totalProbes += probes;
-			
-			//if (as1.DEBUG)
-				System.out.println(probes + " probes to find " + k);
-		}
-		
-		System.out.println("Total number of probes to search for all " + keys.size() + " keys:\t" + totalProbes);
-		System.out.println("Average number of probes per key:\t" + ((double)totalProbes)/keys.size());
-		
-	}
-}
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * .as1.java
+ *
+ * @author Chris Nguyen
+ */
+
+/**
+ * CPSC335 Assignment 1
+ * 
+ * Performs the procedure outlined in the assignment specifications under the "Program" heading:
+ * http://pages.cpsc.ucalgary.ca/~marina/335/asmt1_335_2013.doc
+ */
+public class as1 
+{	
+	// TODO: Set this flag to true to print out debug information after each insertion/search.
+	public static boolean DEBUG = false;
+	
+	// Fourth argument that builds the directory with a ParallelLoader instead of streaming it.
+	public static final String PARALLEL = "parallel";
+	
+	/**
+	 * Validates arg0, the file of keys.
+	 * @param arg0 File name with keys to hash
+	 * @return true if the file can be opened and read, false otherwise.
+	 */
+	public static boolean checkArg0(String arg0)
+	{
+		if (arg0 != null) {
+			File f = new File(arg0);
+			if (f.exists() && f.canRead())
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Validates arg1, the number of keys to hash. The number of keys must be at least one.
+	 * @param arg1 Number of keys to hash
+	 * @return true if the number of keys is at least one, false otherwise.
+	 */
+	public static boolean checkArg1(String arg1)
+	{
+		if (arg1 != null) {
+			try {
+				if (Integer.parseInt(arg1) >= 1)
+					return true;
+			}
+			catch (NumberFormatException nfe) {
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	/** Validates arg2, the size of the bucket in bytes. The size must be large enough to contain
+	 * the longest key in the file, plus 1 to store it's length.
+	 * @param arg2 Size of the bucket in bytes.
+	 * @param longestKey The length of the longest key.
+	 * @return true if arg2 >= longestKey+1, false otherwise
+	 */
+	public static boolean checkArg2(String arg2, int longestKey)
+	{
+		if (arg2 != null) {
+			try {
+				if (Integer.parseInt(arg2) >= longestKey+1)
+					return true;
+			}
+			catch (NumberFormatException nfe) {
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Validates arg3, the optional heap watermark. The watermark must be a fraction of the heap 
+	 * between 0 and 1 exclusive.
+	 * @param arg3 Fraction of the heap past which buckets are spilled to disk.
+	 * @return true if 0 < arg3 < 1, false otherwise.
+	 */
+	public static boolean checkArg3(String arg3)
+	{
+		if (arg3 != null) {
+			try {
+				double watermark = Double.parseDouble(arg3);
+				if (watermark > 0 && watermark < 1)
+					return true;
+			}
+			catch (NumberFormatException nfe) {
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Prints usage command to the terminal. Exits the program.
+	 */
+	public static void usage()
+	{
+		System.out.println("Usage:");
+		System.out.println("\tas1 <file> <number of keys to hash> <bucket size (bytes)> [heap watermark | " + PARALLEL + "]");
+		System.out.println("file - ../input/<name of key file here>");
+		System.out.println("number of keys to hash - must be at least 1");
+		System.out.println("bucket size - must be large enough to hold the longest key in file");
+		System.out.println("heap watermark - optional fraction of the heap (e.g. 0.8) past which buckets spill to disk");
+		System.out.println(PARALLEL + " - optionally read every key into memory and build the directory on every core");
+		System.out.println("\nAborting program.");
+		return;
+	}
+	
+	/**
+	 * Streams at most lines keys from fileName into d. The file is never held in memory, and each 
+	 * key is checked against the bucket size as it is inserted.
+	 * 
+	 * @param d Directory to insert the keys into.
+	 * @param fileName File to read keys from.
+	 * @param lines Number of lines to read.
+	 * @param bucketSize Size of the bucket in bytes.
+	 * @return The number of keys inserted, or -1 if the file cannot be read or a key is too long 
+	 * for a bucket.
+	 */
+	private static long streamFile(Directory d, String fileName, int lines, int bucketSize)
+	{
+		KeyStreamer streamer = null;
+		
+		try {
+			streamer = new KeyStreamer(fileName);
+			return streamer.insertKeys(d, lines, bucketSize);
+		}
+		catch (FileNotFoundException fnfe) {
+			ErrorLogger.logException("as1.streamFile", "Invalid file path: " + fileName, fnfe);
+			return -1;
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("as1.streamFile", "Cannot insert keys from: " + fileName, ioe);
+			return -1;
+		}
+		finally {
+			close(streamer);
+		}
+	}
+	
+	/**
+	 * Inserts at most lines keys from fileName into d one line at a time, printing the hash value 
+	 * of each key and the directory after each insertion.
+	 * 
+	 * @param d Directory to insert the keys into.
+	 * @param fileName File to read keys from.
+	 * @param lines Number of lines to read.
+	 * @param bucketSize Size of the bucket in bytes.
+	 * @return The number of keys inserted, or -1 if the file cannot be read or a key is too long 
+	 * for a bucket.
+	 */
+	private static long debugFile(Directory d, String fileName, int lines, int bucketSize)
+	{
+		StringHasher h = StringHasher.getInstance();
+		KeyReader reader = null;
+		long inserted = 0;
+		String k;
+		
+		try {
+			reader = new KeyReader(fileName);
+			
+			while (inserted < lines && (k = reader.readLine()) != null) {
+				if (k.length() + 1 > bucketSize) {
+					ErrorLogger.logIssue("as1.debugFile", "Key of length " + k.length() + 
+							" does not fit in a bucket of " + bucketSize + " bytes");
+					return -1;
+				}
+				
+				d.insert(k);
+				inserted++;
+				
+				// Print the hash value of k
+				int hashValue = h.hash(k.getBytes()).intValue();
+				String hashInBinary = String.format("%32s", 
+						Integer.toBinaryString(hashValue)).replace(' ', '0');
+				System.out.println(String.format("Hashed %s to:\t%s", k, hashInBinary));
+				
+				// Print directory after inserting
+				System.out.println("Directory inserting " + k + ":");
+				d.print();
+				System.out.println();
+			}
+			
+			return inserted;
+		}
+		catch (FileNotFoundException fnfe) {
+			ErrorLogger.logException("as1.debugFile", "Invalid file path: " + fileName, fnfe);
+			return -1;
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("as1.debugFile", "Corrupted file: " + fileName, ioe);
+			return -1;
+		}
+		finally {
+			close(reader);
+		}
+	}
+	
+	/**
+	 * Reads the first lines keys of fileName again and prints the number of probes needed to find 
+	 * each one in d.
+	 * 
+	 * @param d Directory to search.
+	 * @param fileName File to read keys from.
+	 * @param lines Number of lines to read.
+	 * @return The total number of probes, or -1 if the file cannot be read.
+	 */
+	private static long probeFile(Directory d, String fileName, long lines)
+	{
+		KeyReader reader = null;
+		long totalProbes = 0;
+		String k;
+		
+		try {
+			reader = new KeyReader(fileName);
+			
+			for (long i = 0; i < lines && (k = reader.readLine()) != null; i++) {
+				int probes = d.countProbes(k);
+				totalProbes += probes;
+				
+				//if (as1.DEBUG)
+					System.out.println(probes + " probes to find " + k);
+			}
+			
+			return totalProbes;
+		}
+		catch (FileNotFoundException fnfe) {
+			ErrorLogger.logException("as1.probeFile", "Invalid file path: " + fileName, fnfe);
+			return -1;
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("as1.probeFile", "Corrupted file: " + fileName, ioe);
+			return -1;
+		}
+		finally {
+			close(reader);
+		}
+	}
+	
+	/**
+	 * Reads lines lines from fileName, and inserts them into keyList.
+	 * 
+	 * @param keyList ArrayList to insert read keys into.
+	 * @param fileName File to read keys from.
+	 * @param lines Number of lines to read.
+	 * @return The length of the longest key.
+	 */
+	private static int readFile(ArrayList<String> keyList, String fileName, int lines)
+	{
+		KeyReader reader = null;
+		
+		try {
+			reader = new KeyReader(fileName);
+			return reader.readLines(keyList, lines);
+		}
+		catch (FileNotFoundException fnfe) {
+			ErrorLogger.logException("as1.readFile", "Invalid file path: " + fileName, fnfe);
+			return -1;
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("as1.readFile", "Corrupted file: " + fileName, ioe);
+			return -1;
+		}
+		finally {
+			close(reader);
+		}
+	}
+	
+	/**
+	 * Closes a key file, logging any failure.
+	 * 
+	 * @param file Key file to close, or null if it was never opened.
+	 */
+	private static void close(Closeable file)
+	{
+		try {
+			if (file != null)
+				file.close();
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("as1.close", "Cannot close key file", ioe);
+		}
+	}
+	
+	/**
+	 * Creates the directory. With a heap watermark, buckets are kept in a BufferPool that spills 
+	 * the least recently used ones to a temporary file once the heap fills past the watermark.
+	 * 
+	 * @param bucketSize Size of the bucket in bytes.
+	 * @param watermark Fraction of the heap past which buckets are spilled, or null to keep every 
+	 * bucket in memory.
+	 * @return the directory, or null if the spill file cannot be created.
+	 */
+	private static Directory createDirectory(int bucketSize, String watermark)
+	{
+		if (watermark == null)
+			return new Directory(bucketSize);
+		
+		try {
+			File spill = File.createTempFile("as1", ".spill");
+			spill.deleteOnExit();
+			BucketStore store = new BucketStore(spill.getPath(), bucketSize);
+			return new Directory(bucketSize, new BufferPool(store, Double.parseDouble(watermark)));
+		}
+		catch (IOException ioe) {
+			ErrorLogger.logException("as1.createDirectory", "Cannot create a spill file", ioe);
+			return null;
+		}
+	}
+	
+	public static void main(String[] args)
+	{	
+		// Validate the file path and the number of keys to hash (args 0 and 1 respectively)
+		if (args.length < 3 || args.length > 4 || !checkArg0(args[0]) || !checkArg1(args[1])) {
+			usage();
+			System.exit(0);
+		}
+		String keyFile = args[0];
+		int numberOfKeysToHash = Integer.parseInt(args[1]);
+		
+		// Ensure the specified bucket size can hold at least a single character key. Every key is 
+		// checked against it again as it is inserted.
+		if (!checkArg2(args[2], 1)) {
+			usage();
+			System.exit(0);
+		}
+		
+		int bucketSize = Integer.parseInt(args[2]);
+		
+		// Read every key and build the directory on every core when asked to
+		if (args.length == 4 && args[3].equals(PARALLEL)) {
+			ArrayList<String> keys = new ArrayList<String>();
+			int longestKey = readFile(keys, keyFile, numberOfKeysToHash);
+			if (longestKey <= 0) {
+				usage();
+				System.exit(-1);
+			}
+			if (!checkArg2(args[2], longestKey)) {
+				usage();
+				System.exit(0);
+			}
+			
+			Directory d = null;
+			try {
+				d = new ParallelLoader().load(keys, bucketSize);
+			}
+			catch (OutOfMemoryError oome) {
+				ErrorLogger.logError("as1.main(String[])", 
+						"Not enough memory to build a directory of " + keys.size() + " keys. " + 
+							"Aborting program.", oome);
+				System.exit(-1);
+			}
+			
+			printResults(d, keyFile, keys.size());
+			return;
+		}
+		
+		// Validate the optional heap watermark
+		String watermark = (args.length == 4) ? args[3] : null;
+		if (watermark != null && !checkArg3(watermark)) {
+			usage();
+			System.exit(0);
+		}
+		
+		// Create a directory
+		Directory d = createDirectory(bucketSize, watermark);
+		if (d == null)
+			System.exit(-1);
+		
+		// Insert all keys straight from the file
+		long keyCount = 0;
+		try {
+			if (as1.DEBUG)
+				keyCount = debugFile(d, keyFile, numberOfKeysToHash, bucketSize);
+			else
+				keyCount = streamFile(d, keyFile, numberOfKeysToHash, bucketSize);
+		}
+		catch (OutOfMemoryError oome) {
+			ErrorLogger.logError("as1.main(String[])", 
+					"Not enough memory to expand directory to length " + d.getLength() + 
+						" (depth = " + d.getDepth() + "). " + 
+							"Cannot expand directory further. Aborting program.", oome);
+			System.exit(-1);
+		}
+		if (keyCount <= 0) {
+			usage();
+			System.exit(-1);
+		}
+		
+		printResults(d, keyFile, keyCount);
+	}
+	
+	/**
+	 * Prints the final directory, then the probes needed to find each of the first keyCount keys 
+	 * of keyFile in it.
+	 * 
+	 * @param d Directory the keys were inserted into.
+	 * @param keyFile File the keys were read from.
+	 * @param keyCount Number of keys read from the file.
+	 */
+	private static void printResults(Directory d, String keyFile, long keyCount)
+	{
+		// Print the results:
+		//	1-Final directory
+		//	2-Probe count
+		System.out.println("\n========================= RESULTS =========================");
+		
+		System.out.println("Final directory after inserting all "+keyCount+" keys:\n");
+		d.print();
+		
+		System.out.println();
+		
+		// Search for keys and count probes
+		long totalProbes = probeFile(d, keyFile, keyCount);
+		if (totalProbes < 0)
+			System.exit(-1);
+		
+		System.out.println("Total number of probes to search for all " + keyCount + " keys:\t" + totalProbes);
+		System.out.println("Average number of probes per key:\t" + ((double)totalProbes)/keyCount);
+		
+	}
+}